@@ -0,0 +1,68 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import websocket.GameState;
+import websocket.dto.GameStateDTO;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing the LOAD_GAME payload that is sent to every
+ * player and observer after each move
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameStateBenchmark {
+
+    private final Gson gson = new Gson();
+    private GameState gameState;
+    private GameStateDTO dto;
+
+    @Setup
+    public void setUp() {
+        gameState = new GameState(1);
+        gameState.addPlayer("white-token", "white");
+        gameState.assignPlayerTeamColor("white-token", ChessGame.TeamColor.WHITE);
+        gameState.addPlayer("black-token", "black");
+        gameState.assignPlayerTeamColor("black-token", ChessGame.TeamColor.BLACK);
+        for (int i = 0; i < 4; i++) {
+            gameState.addObserver("observer-token-" + i);
+        }
+        gameState.makeMove("white-token", new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        gameState.makeMove("black-token", new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        dto = gameState.toDTO();
+    }
+
+    @Benchmark
+    public GameStateDTO toDTO() {
+        return gameState.toDTO();
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, dto));
+    }
+
+    @Benchmark
+    public String toDTOAndSerialize() {
+        return gson.toJson(new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameState.toDTO()));
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+import model.AuthData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link AuthDAO} stand-in backed by a map, so benchmarks measure the server
+ * code rather than MySQL round trips
+ */
+class InMemoryAuthDAO extends AuthDAO {
+
+    private final Map<String, AuthData> auths = new ConcurrentHashMap<>();
+
+    @Override
+    public void createAuth(AuthData authData) {
+        auths.put(authData.authToken(), authData);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) {
+        return auths.get(authToken);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (auths.remove(authToken) == null) {
+            throw new DataAccessException("Auth token not found.");
+        }
+    }
+
+    @Override
+    public void clearAllAuthTokens() {
+        auths.clear();
+    }
+}
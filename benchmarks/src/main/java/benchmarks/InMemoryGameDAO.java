@@ -0,0 +1,52 @@
+package benchmarks;
+
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+import model.GameData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link GameDAO} stand-in backed by a map, so benchmarks measure the server
+ * code rather than MySQL round trips
+ */
+class InMemoryGameDAO extends GameDAO {
+
+    private final Map<Integer, GameData> games = new ConcurrentHashMap<>();
+    private final AtomicInteger nextID = new AtomicInteger(1);
+
+    @Override
+    public GameData createGame(String gameName) {
+        GameData game = new GameData(nextID.getAndIncrement(), null, null, gameName);
+        games.put(game.gameID(), game);
+        return game;
+    }
+
+    @Override
+    public GameData getGame(int gameID) {
+        return games.get(gameID);
+    }
+
+    @Override
+    public void updateGame(int gameID, String whiteUsername, String blackUsername) throws DataAccessException {
+        GameData game = games.get(gameID);
+        if (game == null) {
+            throw new DataAccessException("Game not found for update.");
+        }
+        games.put(gameID, new GameData(gameID, whiteUsername, blackUsername, game.gameName()));
+    }
+
+    @Override
+    public void clearAllGames() {
+        games.clear();
+    }
+
+    @Override
+    public List<GameData> listGames() {
+        return new ArrayList<>(games.values());
+    }
+}
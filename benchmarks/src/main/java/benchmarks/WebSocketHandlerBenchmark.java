@@ -0,0 +1,175 @@
+package benchmarks;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.DataAccessException;
+import model.AuthData;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import server.WebSocketServer;
+import websocket.commands.UserGameCommand;
+import websocket.commands.WebSocketHandler;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A MAKE_MOVE round trip through {@link WebSocketHandler#handleMakeMove}:
+ * auth lookup, move validation, LOAD_GAME and NOTIFICATION fan-out to two
+ * players and two observers.
+ * <p>
+ * The DAOs are in-memory stand-ins and the sessions discard what they are
+ * sent, so the figures cover the server's own work. Console logging is
+ * routed to a null stream for the same reason; the string building behind
+ * it is still measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketHandlerBenchmark {
+
+    private static final int GAME_ID = 1;
+    private static final String[] PLAYERS = {"white", "black"};
+    private static final String[] OBSERVERS = {"observer1", "observer2"};
+
+    /**
+     * Knights out and back again, which returns to the starting position
+     */
+    private static final ChessMove[] MOVES = {
+            move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7), move(6, 6, 8, 7)
+    };
+
+    private final InMemoryAuthDAO authDAO = new InMemoryAuthDAO();
+    private final InMemoryGameDAO gameDAO = new InMemoryGameDAO();
+    private WebSocketServer server;
+    private WebSocketHandler handler;
+    private UserGameCommand[] moveCommands;
+    private PrintStream originalOut;
+    private long bytesSent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws DataAccessException {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        server = new WebSocketServer();
+        handler = new WebSocketHandler(server, authDAO, gameDAO);
+        gameDAO.createGame("benchmark");
+        for (String user : PLAYERS) {
+            authDAO.createAuth(new AuthData(token(user), user));
+        }
+        for (String user : OBSERVERS) {
+            authDAO.createAuth(new AuthData(token(user), user));
+        }
+
+        moveCommands = new UserGameCommand[MOVES.length];
+        for (int i = 0; i < MOVES.length; i++) {
+            moveCommands[i] = command(UserGameCommand.CommandType.MAKE_MOVE, PLAYERS[i % 2]);
+            moveCommands[i].setMove(MOVES[i]);
+        }
+        connectAll();
+    }
+
+    /**
+     * Starts each invocation from a fresh game so the position never repeats
+     * often enough to end it
+     */
+    @Setup(Level.Invocation)
+    public void resetGame() throws DataAccessException {
+        for (String user : PLAYERS) {
+            handler.handleCommand(command(UserGameCommand.CommandType.LEAVE, user), null);
+        }
+        connectAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+        System.out.println("Bytes sent to sessions: " + bytesSent);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void handleMakeMove() {
+        for (UserGameCommand command : moveCommands) {
+            handler.handleMakeMove(command);
+        }
+    }
+
+    private void connectAll() throws DataAccessException {
+        gameDAO.updateGame(GAME_ID, PLAYERS[0], PLAYERS[1]);
+        for (String user : PLAYERS) {
+            handler.handleConnect(command(UserGameCommand.CommandType.CONNECT, user), session());
+        }
+        for (String user : OBSERVERS) {
+            handler.handleConnect(command(UserGameCommand.CommandType.CONNECT, user), session());
+        }
+    }
+
+    /**
+     * An open session that counts and drops whatever is sent to it
+     */
+    private Session session() {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString")) {
+                        bytesSent += ((String) args[0]).length();
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getRemote" -> remote;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "BenchmarkSession@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static UserGameCommand command(UserGameCommand.CommandType type, String user) {
+        UserGameCommand command = new UserGameCommand();
+        command.setCommandType(type);
+        command.setAuthToken(token(user));
+        command.setGameID(GAME_ID);
+        return command;
+    }
+
+    private static String token(String user) {
+        return user + "-token";
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null);
+    }
+}
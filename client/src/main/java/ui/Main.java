@@ -48,6 +48,7 @@ public class Main {
   public static boolean isInGame = false; // Tracks if the user is currently in a game
 
   public static boolean isObserver = false;
+  private static boolean isFollowingAnalysis = false; // Observer asked for the engine's analysis
 
 
   private static Scanner scanner = new Scanner(System.in); // Scanner to read user input
@@ -267,6 +268,9 @@ public class Main {
       return;
     }
 
+    System.out.print("Play against the computer? (y/n): ");
+    boolean againstComputer = scanner.nextLine().trim().toLowerCase().startsWith("y");
+
     String response = serverFacade.playGame(gameName,playerColor);
     System.out.println(response);
 
@@ -275,8 +279,12 @@ public class Main {
       isObserver = false;
       currentGameID = serverFacade.getLastGameID();
 
-      // Send CONNECT command via WebSocket
-      sendConnectCommand(currentGameID);
+      // Send CONNECT command via WebSocket; the server plays the other side if asked
+      ChessGame.TeamColor engineColor = null;
+      if (againstComputer) {
+        engineColor = playerColor.equals("white") ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+      }
+      sendConnectCommand(currentGameID, engineColor);
 
       // Start gameplay loop
       gameplayLoop();
@@ -285,12 +293,13 @@ public class Main {
       System.out.println("Error: Unable to join. The game is already full.");
     }
   }
-  private static void sendConnectCommand(int gameID) {
+  private static void sendConnectCommand(int gameID, ChessGame.TeamColor engineColor) {
     // Create a UserGameCommand object for CONNECT
     UserGameCommand connectCommand = new UserGameCommand();
     connectCommand.setCommandType(UserGameCommand.CommandType.CONNECT);
     connectCommand.setAuthToken(serverFacade.getAuthToken());
     connectCommand.setGameID(gameID);
+    connectCommand.setEngineColor(engineColor);
 
     // Serialize to JSON using Gson
     String connectJson = new Gson().toJson(connectCommand);
@@ -315,6 +324,7 @@ public class Main {
     if (response.startsWith("Observing game:")) {
       try {
         isObserver = true;
+        isFollowingAnalysis = false;
         System.out.println("Observer status: " + isObserver);
 
         isInGame = true;
@@ -404,7 +414,7 @@ public class Main {
 
   private static void gameplayLoop() {
     while (isInGame) {
-      System.out.println("\nEnter a command: makemove, resign, leave, redraw, highlight, clear, help");
+      System.out.println("\nEnter a command: makemove, resign, leave, redraw, highlight, clear, bookmove, claim, hint, analysis, help");
       System.out.print("> ");
       String command = scanner.nextLine().trim().toLowerCase();
 
@@ -432,6 +442,30 @@ public class Main {
         case "clear":
           clearHighlights();
           break;
+        case "bookmove":
+          requestBookMove();
+          break;
+        case "claim":
+          if (isObserver) {
+            System.out.println("Error: Observers cannot claim a result.");
+          } else {
+            claimResult();
+          }
+          break;
+        case "hint":
+          if (isObserver) {
+            System.out.println("Error: Observers cannot ask for a hint.");
+          } else {
+            requestHint();
+          }
+          break;
+        case "analysis":
+          if (isObserver) {
+            toggleAnalysis();
+          } else {
+            System.out.println("Error: Only observers can follow the engine's analysis.");
+          }
+          break;
         case "help":
           showGameplayHelp();
           break;
@@ -474,6 +508,44 @@ public class Main {
     shouldTransitionToPostLogin.set(true); // Set the flag to transition
     isInGame = false; // Update game state
   }
+  private static void requestBookMove() {
+    // The server answers with a notification naming the book move
+    String bookMoveCommand = String.format(
+            "{\"commandType\": \"BOOK_MOVE\", \"authToken\": \"%s\", \"gameID\": %d}",
+            serverFacade.getAuthToken(), currentGameID
+    );
+    webSocketClient.sendMessage(bookMoveCommand);
+  }
+
+  private static void claimResult() {
+    // Ends the game if the server's endgame tables hold this position
+    String claimCommand = String.format(
+            "{\"commandType\": \"CLAIM_RESULT\", \"authToken\": \"%s\", \"gameID\": %d}",
+            serverFacade.getAuthToken(), currentGameID
+    );
+    webSocketClient.sendMessage(claimCommand);
+  }
+
+  private static void requestHint() {
+    // The server answers with a notification naming the suggested move
+    String hintCommand = String.format(
+            "{\"commandType\": \"HINT\", \"authToken\": \"%s\", \"gameID\": %d}",
+            serverFacade.getAuthToken(), currentGameID
+    );
+    webSocketClient.sendMessage(hintCommand);
+  }
+
+  private static void toggleAnalysis() {
+    // While following, the server sends the engine's best lines as the game goes on
+    isFollowingAnalysis = !isFollowingAnalysis;
+    String analysisCommand = String.format(
+            "{\"commandType\": \"%s\", \"authToken\": \"%s\", \"gameID\": %d}",
+            isFollowingAnalysis ? "SUBSCRIBE_ANALYSIS" : "UNSUBSCRIBE_ANALYSIS",
+            serverFacade.getAuthToken(), currentGameID
+    );
+    webSocketClient.sendMessage(analysisCommand);
+  }
+
   private static void resign() {
     if (!isInGame) {
       System.out.println("Error: You are not currently in a game.");
@@ -534,6 +606,11 @@ public class Main {
 
 
   private static void updateChessGameFromGameState(GameStateDTO gameStateDTO) {
+    if (gameStateDTO.getFen() != null) {
+      // The FEN carries the side to move, castling and en passant as well as the pieces
+      chessGame = ChessGame.fromFen(gameStateDTO.getFen());
+      return;
+    }
     ChessBoard chessBoard = new ChessBoard();
     for (Map.Entry<String, String> entry : gameStateDTO.getBoard().entrySet()) {
       String square = entry.getKey(); // e.g., "e2"
@@ -543,7 +620,7 @@ public class Main {
       ChessPiece.PieceType pieceType = getPieceTypeFromSymbol(pieceSymbol);
       ChessGame.TeamColor teamColor = isWhitePiece(pieceSymbol) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
 
-      ChessPiece chessPiece = new ChessPiece(teamColor, pieceType);
+      ChessPiece chessPiece = ChessPiece.of(teamColor, pieceType);
       chessBoard.addPiece(position, chessPiece);
     }
 
@@ -612,7 +689,7 @@ public class Main {
     char colChar = square.charAt(0);
     int row = Character.getNumericValue(square.charAt(1));
     int col = colChar - 'a' + 1;
-    return new ChessPosition(row, col);
+    return ChessPosition.of(row, col);
   }
   private static boolean isValidSquareFormat(String square) {
     return square.matches("^[a-h][1-8]$");
@@ -733,6 +810,10 @@ public class Main {
     System.out.println("  highlight - Highlight legal moves for a selected piece");
     System.out.println("  clear     - Clear all highlighted squares");
     System.out.println("  redraw    - Redraw the chessboard");
+    System.out.println("  bookmove  - Ask the server for the opening book's move in this position");
+    System.out.println("  claim     - End the game with the endgame tables' result for this position");
+    System.out.println("  hint      - Ask the server's engine to suggest a move");
+    System.out.println("  analysis  - Observers: start or stop following the engine's best lines");
     System.out.println("  help     - Display available in-game commands");
   }
 
@@ -779,8 +860,8 @@ public class Main {
 
     // Do not adjust rows
 
-    ChessPosition startPos = new ChessPosition(startRow, startCol);
-    ChessPosition endPos = new ChessPosition(endRow, endCol);
+    ChessPosition startPos = ChessPosition.of(startRow, startCol);
+    ChessPosition endPos = ChessPosition.of(endRow, endCol);
 
     // Since this is not a promotion move, we pass null for promotionPiece
     return new ChessMove(startPos, endPos, null);
@@ -2,7 +2,9 @@ package websocket;
 
 import websocket.dto.GameStateDTO;
 import com.google.gson.Gson;
+import websocket.messages.AnalysisData;
 import websocket.messages.ServerMessage;
+import chess.engine.Search;
 import ui.Main;
 public class WebSocketMessageHandler {
   private static final Gson GSON= new Gson();
@@ -50,6 +52,10 @@ public class WebSocketMessageHandler {
           Main.currentGameID = -1;
           Main.shouldTransitionToPostLogin.set(true); // Signal the main loop to transition
           break;
+        case ANALYSIS:
+          AnalysisData analysis = GSON.fromJson(GSON.toJson(serverMessage.getData()), AnalysisData.class);
+          displayAnalysis(analysis);
+          break;
         case ERROR:
           System.out.println("Parsed ServerMessageType: ERROR");
           // Display error message
@@ -70,6 +76,26 @@ public class WebSocketMessageHandler {
     System.out.println("====================\n");
   }
 
+  private static void displayAnalysis(AnalysisData analysis) {
+    System.out.println("\nEngine analysis (depth " + analysis.getDepth() + "):");
+    int rank = 1;
+    for (AnalysisData.Line line : analysis.getLines()) {
+      System.out.println("  " + rank++ + ". " + formatScore(line.getScore()) + "  " + String.join(" ", line.getMoves()));
+    }
+  }
+
+  /**
+   * Scores are from white's point of view: pawns, or #N for mate in N moves
+   * (negative when black mates)
+   */
+  private static String formatScore(int score) {
+    if (Search.isMateScore(score)) {
+      int moves = (Search.MATE_SCORE - Math.abs(score) + 1) / 2;
+      return score > 0 ? "#" + moves : "#-" + moves;
+    }
+    return String.format("%+.2f", score / 100.0);
+  }
+
   private static void displayNotification(String message) {
     // Implement UI notification logic
     System.out.println("Notification: " + message);
@@ -0,0 +1,68 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import model.MoveAnalysisData;
+
+public class AnalysisDAO {
+
+  /**
+   * Stores the analysis of a game, replacing any earlier analysis of it
+   */
+  public void saveAnalysis(int gameID, List<MoveAnalysisData> moves) throws DataAccessException {
+    try (Connection conn = DatabaseManager.getConnection()) {
+      conn.setAutoCommit(false);
+
+      String sql = "INSERT INTO MoveAnalysis (gameID, ply, move, score, bestMove, bestScore, blunder) "
+              + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+      try (PreparedStatement delete = conn.prepareStatement("DELETE FROM MoveAnalysis WHERE gameID = ?");
+           PreparedStatement insert = conn.prepareStatement(sql)) {
+        delete.setInt(1, gameID);
+        delete.executeUpdate();
+
+        for (MoveAnalysisData move : moves) {
+          insert.setInt(1, gameID);
+          insert.setInt(2, move.ply());
+          insert.setString(3, move.move());
+          insert.setInt(4, move.score());
+          insert.setString(5, move.bestMove());
+          insert.setInt(6, move.bestScore());
+          insert.setBoolean(7, move.blunder());
+          insert.addBatch();
+        }
+        insert.executeBatch();
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw new DataAccessException("Error saving analysis: " + e.getMessage());
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Error saving analysis: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return the game's analysed moves in order, empty if it has not been analysed
+   */
+  public List<MoveAnalysisData> getAnalysis(int gameID) throws DataAccessException {
+    List<MoveAnalysisData> moves = new ArrayList<>();
+    try (Connection conn = DatabaseManager.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("SELECT * FROM MoveAnalysis WHERE gameID = ? ORDER BY ply")) {
+
+      stmt.setInt(1, gameID);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          moves.add(new MoveAnalysisData(gameID, rs.getInt("ply"), rs.getString("move"), rs.getInt("score"),
+                  rs.getString("bestMove"), rs.getInt("bestScore"), rs.getBoolean("blunder")));
+        }
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Error retrieving analysis: " + e.getMessage());
+    }
+    return moves;
+  }
+}
@@ -96,6 +96,21 @@ public class DatabaseManager {
                 )
             """);
 
+                // Create MoveAnalysis Table, filled in the background once a game ends
+                stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS MoveAnalysis (
+                    gameID INT NOT NULL,
+                    ply INT NOT NULL,
+                    move VARCHAR(5) NOT NULL,
+                    score INT NOT NULL,
+                    bestMove VARCHAR(5),
+                    bestScore INT NOT NULL,
+                    blunder BOOLEAN NOT NULL,
+                    PRIMARY KEY (gameID, ply),
+                    FOREIGN KEY (gameID) REFERENCES Games(gameID) ON DELETE CASCADE
+                )
+            """);
+
                 conn.commit();
 
             }
@@ -11,6 +11,7 @@ import dataaccess.GameDAO;
 import dataaccess.AuthDAO;
 import dataaccess.DatabaseManager;
 import spark.Spark;
+import chess.attack.SlidingAttacks;
 
 import static spark.Spark.*;
 
@@ -24,6 +25,10 @@ public class Server {
       System.exit(1);
     }
 
+    // Build the sliding attack tables now instead of on the first move
+    long attackTableMillis = SlidingAttacks.initialize();
+    System.out.println("Sliding attack tables built in " + attackTableMillis + " ms");
+
     port(port);
     staticFiles.location("/web");
 
@@ -67,7 +67,10 @@ public class WebSocketServer {
     try {
       if (session != null && session.isOpen()) {
         System.out.println("Sending message to session: " + session + ", message: " + message);
-        session.getRemote().sendString(message);
+        // Engine replies are sent from search threads; a session takes one blocking send at a time
+        synchronized (session) {
+          session.getRemote().sendString(message);
+        }
       } else {
         System.err.println("Session is closed or null. Cannot send message: " + message);
       }
@@ -0,0 +1,124 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.Move;
+import chess.engine.OpeningBook;
+import chess.engine.ParallelSearch;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebase;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks moves for games where one side is played by the server.
+ * <p>
+ * Searches run on a pool of their own with a fixed number of threads, one
+ * search per thread, so however many engine games are in progress they never
+ * run on a WebSocket thread and never use more than that many processors.
+ * Searches beyond the limit wait in the pool's queue.
+ * <p>
+ * While the game is still in the opening book the engine plays book moves
+ * without searching. With endgame tables loaded, positions they hold are
+ * played perfectly.
+ */
+public class EngineOpponent {
+  /** System property holding how long the engine thinks per move, in milliseconds */
+  public static final String MOVE_MILLIS_PROPERTY = "chess.engine.moveMillis";
+  public static final int DEFAULT_MOVE_MILLIS = 1_000;
+
+  private final ParallelSearch search;
+  private final SearchLimits limits;
+  private final OpeningBook book;
+  private final Tablebase tablebase;
+
+  /**
+   * @param pool   pool to run searches on; its parallelism caps concurrent searches
+   * @param table  transposition table shared by every engine game
+   * @param limits how long to think per move
+   * @param book      book to play from before searching, or null for none
+   * @param tablebase endgame tables for the search to use, or null for none
+   */
+  public EngineOpponent(ForkJoinPool pool, TranspositionTable table, SearchLimits limits, OpeningBook book,
+                        Tablebase tablebase) {
+    this.search = new ParallelSearch(pool, table, 1, tablebase);
+    this.limits = limits;
+    this.book = book;
+    this.tablebase = tablebase;
+  }
+
+  /**
+   * Creates an engine that runs at most {@link ParallelSearch#THREADS_PROPERTY}
+   * searches at a time, with a table sized by {@link TranspositionTable#SIZE_PROPERTY}
+   * and a think time from {@link #MOVE_MILLIS_PROPERTY}, playing from the
+   * book at {@link OpeningBook#FILE_PROPERTY} and with the tables in
+   * {@link Tablebase#DIRECTORY_PROPERTY} if they are set
+   */
+  public static EngineOpponent withConfiguredLimits() {
+    int moveMillis = Math.max(1, Integer.getInteger(MOVE_MILLIS_PROPERTY, DEFAULT_MOVE_MILLIS));
+    OpeningBook book = null;
+    try {
+      book = OpeningBook.openConfigured();
+    } catch (IOException e) {
+      // The engine still plays without a book
+      System.err.println("Could not open the opening book: " + e.getMessage());
+    }
+    Tablebase tablebase = null;
+    try {
+      tablebase = Tablebase.openConfigured();
+    } catch (IOException e) {
+      System.err.println("Could not open the endgame tables: " + e.getMessage());
+    }
+    return new EngineOpponent(ParallelSearch.newPool(ParallelSearch.configuredThreads()),
+            TranspositionTable.withConfiguredSize(), SearchLimits.ofTime(moveMillis), book, tablebase);
+  }
+
+  /**
+   * Starts looking for a move in the game's current position. Returns at once;
+   * the search works on a copy, so the game may change in the meantime.
+   *
+   * @param game the position to move in
+   * @return the search result, completed on a search thread, or already
+   * complete with a depth of 0 for a book move
+   */
+  public CompletableFuture<SearchResult> chooseMove(ChessGame game) {
+    if (book != null) {
+      // A lookup is a binary search over mapped memory, cheap enough for the caller's thread
+      int move = book.pickMove(game, ThreadLocalRandom.current().nextLong());
+      if (move != Move.NONE) {
+        return CompletableFuture.completedFuture(new SearchResult(move, 0, 0, 0, 0));
+      }
+    }
+    return search.searchAsync(game, limits);
+  }
+
+  /**
+   * Starts a search of the game's current position with other limits than
+   * the engine's own, on the same pool, so it counts against the same thread cap
+   *
+   * @param game   the position to search; the search works on a copy
+   * @param limits how deep and how long to search
+   * @return the search result, completed on a search thread
+   */
+  public CompletableFuture<SearchResult> search(ChessGame game, SearchLimits limits) {
+    return search.searchAsync(game, limits);
+  }
+
+  /**
+   * @return the opening book, or null if the engine has none
+   */
+  public OpeningBook getBook() {
+    return book;
+  }
+
+  /**
+   * @return the endgame tables, or null if none are loaded
+   */
+  public Tablebase getTablebase() {
+    return tablebase;
+  }
+}
@@ -0,0 +1,183 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Move;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import dataaccess.AnalysisDAO;
+import dataaccess.DataAccessException;
+import model.MoveAnalysisData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Analyses finished games in the background: every position of the game is
+ * searched to a fixed depth, and each move is scored against the engine's
+ * choice and flagged as a blunder if it gave away too much.
+ * <p>
+ * Live games always come first. Finished games wait in a bounded queue, and
+ * when it is full {@link #submit} turns the game away at once rather than
+ * hold up the WebSocket thread that finished it. Games are taken off the
+ * queue one at a time; the positions of a game are searched in parallel on a
+ * pool of minimum-priority daemon threads, separate from the engine's pool
+ * and with a transposition table of its own, so analysis neither takes the
+ * engine's threads nor evicts its table entries.
+ */
+public class GameAnalyzer {
+  /** System property holding how many threads search positions for analysis */
+  public static final String THREADS_PROPERTY = "chess.analysis.threads";
+  /** System property holding how many plies deep each position is searched */
+  public static final String DEPTH_PROPERTY = "chess.analysis.depth";
+  /** System property holding how many finished games may wait for analysis */
+  public static final String QUEUE_SIZE_PROPERTY = "chess.analysis.queueSize";
+  public static final int DEFAULT_THREADS = 1;
+  public static final int DEFAULT_DEPTH = 6;
+  public static final int DEFAULT_QUEUE_SIZE = 64;
+  /** A move scoring this many centipawns or more below the engine's choice is a blunder */
+  public static final int BLUNDER_CENTIPAWNS = 200;
+
+  private final AnalysisDAO analysisDAO;
+  private final ThreadPoolExecutor queue;
+  private final ForkJoinPool pool;
+  private final ThreadLocal<Search> searches;
+  private final SearchLimits limits;
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * @param analysisDAO where analyses are stored
+   * @param threads     threads searching the positions of a game
+   * @param depth       plies to search each position
+   * @param queueSize   finished games that may wait; more are turned away
+   * @param table       transposition table for the analysis searches alone
+   */
+  public GameAnalyzer(AnalysisDAO analysisDAO, int threads, int depth, int queueSize, TranspositionTable table) {
+    this.analysisDAO = analysisDAO;
+    this.queue = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+            runnable -> lowPriority(new Thread(runnable), "chess-analysis-queue"),
+            new ThreadPoolExecutor.AbortPolicy());
+    AtomicInteger count = new AtomicInteger();
+    ForkJoinPool.ForkJoinWorkerThreadFactory factory = forkJoinPool -> lowPriority(
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool),
+            "chess-analysis-" + count.incrementAndGet());
+    this.pool = new ForkJoinPool(threads, factory, null, false, 0, threads, 1, null, 60, TimeUnit.SECONDS);
+    this.searches = ThreadLocal.withInitial(() -> new Search(table));
+    this.limits = SearchLimits.ofDepth(depth);
+  }
+
+  /**
+   * Creates an analyzer with {@link #THREADS_PROPERTY} threads searching
+   * {@link #DEPTH_PROPERTY} plies deep, a queue of {@link #QUEUE_SIZE_PROPERTY}
+   * games and a table sized by {@link TranspositionTable#SIZE_PROPERTY}
+   */
+  public static GameAnalyzer withConfiguredLimits(AnalysisDAO analysisDAO) {
+    return new GameAnalyzer(analysisDAO,
+            Math.max(1, Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS)),
+            Math.max(1, Integer.getInteger(DEPTH_PROPERTY, DEFAULT_DEPTH)),
+            Math.max(1, Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE)),
+            TranspositionTable.withConfiguredSize());
+  }
+
+  private static <T extends Thread> T lowPriority(T thread, String name) {
+    thread.setName(name);
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  }
+
+  /**
+   * Queues a finished game for analysis. Never blocks.
+   *
+   * @param moves every move of the game, from the starting position
+   * @return false if the queue is full and the game will not be analysed
+   */
+  public boolean submit(int gameID, List<ChessMove> moves) {
+    try {
+      queue.execute(() -> {
+        try {
+          analysisDAO.saveAnalysis(gameID, analyze(gameID, moves));
+        } catch (DataAccessException | RuntimeException e) {
+          System.err.println("Could not analyse game " + gameID + ": " + e.getMessage());
+        }
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      rejected.incrementAndGet();
+      return false;
+    }
+  }
+
+  /**
+   * Searches every position of a game, in parallel, and scores each move
+   *
+   * @param moves every move of the game, from the starting position
+   * @return one entry per move, in order
+   * @throws IllegalArgumentException if a move is not legal
+   */
+  public List<MoveAnalysisData> analyze(int gameID, List<ChessMove> moves) {
+    ChessGame[] positions = new ChessGame[moves.size() + 1];
+    ChessGame game = new ChessGame();
+    for (int ply = 0; ply < moves.size(); ply++) {
+      positions[ply] = game.copy();
+      try {
+        game.makeMove(moves.get(ply));
+      } catch (InvalidMoveException e) {
+        throw new IllegalArgumentException("Illegal move " + moves.get(ply) + " in game " + gameID, e);
+      }
+    }
+    positions[moves.size()] = game;
+
+    SearchResult[] results;
+    try {
+      results = pool.submit(() -> IntStream.range(0, positions.length).parallel()
+              .mapToObj(ply -> searches.get().search(positions[ply], limits))
+              .toArray(SearchResult[]::new)).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Analysis was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Analysis failed", e.getCause());
+    }
+
+    List<MoveAnalysisData> analysis = new ArrayList<>(moves.size());
+    for (int ply = 0; ply < moves.size(); ply++) {
+      SearchResult best = results[ply];
+      int played = Move.of(moves.get(ply));
+      boolean playedBest = Move.sameMove(played, best.bestMove());
+      // The position after the move, searched for the other side
+      int score = playedBest ? best.score() : -results[ply + 1].score();
+      analysis.add(new MoveAnalysisData(gameID, ply, Move.toString(played), score,
+              best.bestMove() == Move.NONE ? null : Move.toString(best.bestMove()), best.score(),
+              best.score() - score >= BLUNDER_CENTIPAWNS));
+    }
+    return analysis;
+  }
+
+  /**
+   * @return games turned away because the queue was full
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * @return games waiting to be analysed, not counting one in progress
+   */
+  public int getQueuedCount() {
+    return queue.getQueue().size();
+  }
+}
@@ -0,0 +1,199 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suggests moves to players from a shallow search on the engine's pool.
+ * <p>
+ * Results are cached by position key (see {@link ChessGame#getPositionKey()}),
+ * so a hint for a position any player has asked about before, in any game,
+ * costs nothing; players asking about the same position at once share one
+ * search. Each user may start only so many searches: a few at once, then one
+ * per interval. Hints served from the cache are not counted, so the limit
+ * only stops a user from queueing searches faster than the engine's pool,
+ * which the computer's own moves also wait on, can run them.
+ */
+public class HintService {
+  /** System property holding how many plies deep a hint is searched */
+  public static final String DEPTH_PROPERTY = "chess.hints.depth";
+  /** System property holding how many positions' hints are kept */
+  public static final String CACHE_SIZE_PROPERTY = "chess.hints.cacheSize";
+  /** System property holding how many hint searches a user may start at once */
+  public static final String BURST_PROPERTY = "chess.hints.burst";
+  /** System property holding how often a user may start another hint search, in milliseconds */
+  public static final String INTERVAL_PROPERTY = "chess.hints.intervalMillis";
+  public static final int DEFAULT_DEPTH = 6;
+  public static final int DEFAULT_CACHE_SIZE = 4_096;
+  public static final int DEFAULT_BURST = 3;
+  public static final int DEFAULT_INTERVAL_MILLIS = 10_000;
+
+  private final EngineOpponent engine;
+  private final SearchLimits limits;
+  private final HintCache cache;
+  private final Map<String, Allowance> allowances = new ConcurrentHashMap<>();
+  private final int burst;
+  private final long intervalNanos;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder searches = new LongAdder();
+
+  /**
+   * @param engine         engine whose pool runs the searches
+   * @param depth          plies to search for a hint
+   * @param cacheSize      the most positions to keep hints for
+   * @param burst          hint searches a user may start at once
+   * @param intervalMillis time for a user to earn another search
+   */
+  public HintService(EngineOpponent engine, int depth, int cacheSize, int burst, long intervalMillis) {
+    this.engine = engine;
+    this.limits = SearchLimits.ofDepth(depth);
+    this.cache = new HintCache(cacheSize);
+    this.burst = burst;
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  /**
+   * Creates a hint service searching {@link #DEPTH_PROPERTY} plies, caching
+   * {@link #CACHE_SIZE_PROPERTY} positions and allowing each user
+   * {@link #BURST_PROPERTY} searches, then one per {@link #INTERVAL_PROPERTY}
+   */
+  public static HintService withConfiguredLimits(EngineOpponent engine) {
+    return new HintService(engine,
+            Math.max(1, Integer.getInteger(DEPTH_PROPERTY, DEFAULT_DEPTH)),
+            Math.max(1, Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE)),
+            Math.max(1, Integer.getInteger(BURST_PROPERTY, DEFAULT_BURST)),
+            Math.max(0, Integer.getInteger(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS)));
+  }
+
+  /**
+   * Finds a hint for the side to move. Returns at once.
+   *
+   * @param userName who is asking, for the rate limit
+   * @param game     the position; it is not modified
+   * @return the search result, already complete if the position was cached,
+   * otherwise completed on the engine's pool; or null if the user has started
+   * too many searches lately
+   */
+  public CompletableFuture<SearchResult> requestHint(String userName, ChessGame game) {
+    long key = game.getPositionKey();
+    CompletableFuture<SearchResult> hint;
+    synchronized (cache) {
+      hint = cache.get(key);
+    }
+    if (hint != null) {
+      hits.increment();
+      return hint;
+    }
+    if (!allowances.computeIfAbsent(userName, name -> new Allowance(burst)).take(burst, intervalNanos)) {
+      return null;
+    }
+
+    CompletableFuture<SearchResult> search = new CompletableFuture<>();
+    synchronized (cache) {
+      // Another player may have started on this position in the meantime
+      hint = cache.putIfAbsent(key, search);
+    }
+    if (hint != null) {
+      hits.increment();
+      return hint;
+    }
+    searches.increment();
+    engine.search(game, limits).whenComplete((result, failure) -> {
+      if (failure != null) {
+        synchronized (cache) {
+          cache.remove(key, search);
+        }
+        search.completeExceptionally(failure);
+      } else {
+        search.complete(result);
+      }
+    });
+    return search;
+  }
+
+  /**
+   * @return hints served from the cache, or from a search another request started
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return hint searches started
+   */
+  public long getSearches() {
+    return searches.sum();
+  }
+
+  /**
+   * A user's allowance of searches: up to {@code burst} saved, earning one
+   * more each interval
+   */
+  private static final class Allowance {
+    private double available;
+    private long updated = System.nanoTime();
+
+    Allowance(int burst) {
+      this.available = burst;
+    }
+
+    synchronized boolean take(int burst, long intervalNanos) {
+      long now = System.nanoTime();
+      if (intervalNanos == 0) {
+        available = burst;
+      } else {
+        available = Math.min(burst, available + (double) (now - updated) / intervalNanos);
+      }
+      updated = now;
+      if (available < 1) {
+        return false;
+      }
+      available--;
+      return true;
+    }
+  }
+
+  /**
+   * The hints for the most recently asked about positions. Not thread-safe.
+   */
+  private static final class HintCache {
+    private final Map<Long, CompletableFuture<SearchResult>> hints = new LinkedHashMap<>(16, 0.75f, true);
+    private final int capacity;
+
+    HintCache(int capacity) {
+      this.capacity = capacity;
+    }
+
+    CompletableFuture<SearchResult> get(long key) {
+      return hints.get(key);
+    }
+
+    /**
+     * @return the hint already cached for the position, or null if
+     * {@code hint} was added
+     */
+    CompletableFuture<SearchResult> putIfAbsent(long key, CompletableFuture<SearchResult> hint) {
+      CompletableFuture<SearchResult> existing = hints.putIfAbsent(key, hint);
+      if (existing == null && hints.size() > capacity) {
+        // Access order puts the least recently asked about position first
+        Iterator<CompletableFuture<SearchResult>> eldest = hints.values().iterator();
+        eldest.next();
+        eldest.remove();
+      }
+      return existing;
+    }
+
+    void remove(long key, CompletableFuture<SearchResult> hint) {
+      hints.remove(key, hint);
+    }
+  }
+}
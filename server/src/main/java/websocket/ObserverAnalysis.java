@@ -0,0 +1,329 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.engine.PrincipalVariation;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebase;
+import websocket.messages.AnalysisData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the engine's analysis of a game to the observers who ask for it.
+ * <p>
+ * Each watched game has one analysis, however many observers subscribe: its
+ * position is searched for the best few lines ("multi-PV"), and each result
+ * is built once and handed to the {@link Listener} with every subscriber, so
+ * the work grows with the number of watched games and not with the number of
+ * observers. Games nobody subscribes to are not searched at all.
+ * <p>
+ * A timer looks at the watched games once per interval. A game whose
+ * position is new, or whose last search went deeper than the one before, is
+ * searched again for half an interval; the table keeps what earlier searches
+ * found, so each one reaches further. A game gets at most one search at a
+ * time and one update per interval, and once the searches stop getting
+ * deeper it is left alone until someone moves. Searches run on a fixed
+ * number of minimum-priority threads, with a table of their own, so however
+ * many games are watched they never slow down the engine's games.
+ */
+public class ObserverAnalysis {
+  /** System property holding how many lines observers are sent */
+  public static final String LINES_PROPERTY = "chess.observers.lines";
+  /** System property holding the least time between updates of a game, in milliseconds */
+  public static final String INTERVAL_PROPERTY = "chess.observers.intervalMillis";
+  /** System property holding how many threads search watched games */
+  public static final String THREADS_PROPERTY = "chess.observers.threads";
+  /** System property holding the deepest a watched game is searched */
+  public static final String MAX_DEPTH_PROPERTY = "chess.observers.maxDepth";
+  public static final int DEFAULT_LINES = 3;
+  public static final int DEFAULT_INTERVAL_MILLIS = 2_000;
+  public static final int DEFAULT_THREADS = 1;
+  public static final int DEFAULT_MAX_DEPTH = 24;
+
+  /**
+   * Receives each new analysis of a watched game
+   */
+  public interface Listener {
+    /**
+     * Called on a search thread
+     *
+     * @param subscribers auth tokens of the observers to send it to
+     */
+    void publish(int gameID, Set<String> subscribers, AnalysisData analysis);
+  }
+
+  private final Map<Integer, Watch> watches = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService timer;
+  private final ExecutorService searchers;
+  private final ThreadLocal<Search> searches;
+  private final int lines;
+  private final long intervalMillis;
+  private final int maxDepth;
+  private volatile Listener listener;
+
+  /**
+   * @param lines          lines to send per update
+   * @param intervalMillis least time between updates of a game
+   * @param threads        threads searching watched games
+   * @param maxDepth       depth at which a game's analysis stops
+   * @param table          transposition table for these searches alone
+   * @param tablebase      endgame tables for the searches, or null for none
+   */
+  public ObserverAnalysis(int lines, long intervalMillis, int threads, int maxDepth, TranspositionTable table,
+                          Tablebase tablebase) {
+    this.lines = lines;
+    this.intervalMillis = intervalMillis;
+    this.maxDepth = Math.min(maxDepth, Search.MAX_PLY);
+    this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "chess-observers-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicInteger count = new AtomicInteger();
+    this.searchers = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "chess-observers-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    this.searches = ThreadLocal.withInitial(() -> new Search(table, tablebase));
+  }
+
+  /**
+   * Creates an analysis sending {@link #LINES_PROPERTY} lines at most every
+   * {@link #INTERVAL_PROPERTY} milliseconds, searched by
+   * {@link #THREADS_PROPERTY} threads to at most {@link #MAX_DEPTH_PROPERTY}
+   * plies, with a table sized by {@link TranspositionTable#SIZE_PROPERTY}
+   *
+   * @param tablebase endgame tables for the searches, or null for none
+   */
+  public static ObserverAnalysis withConfiguredLimits(Tablebase tablebase) {
+    return new ObserverAnalysis(
+            Math.max(1, Integer.getInteger(LINES_PROPERTY, DEFAULT_LINES)),
+            Math.max(2, Integer.getInteger(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS)),
+            Math.max(1, Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS)),
+            Math.max(1, Integer.getInteger(MAX_DEPTH_PROPERTY, DEFAULT_MAX_DEPTH)),
+            TranspositionTable.withConfiguredSize(), tablebase);
+  }
+
+  /**
+   * Starts the timer; updates go to {@code listener} from then on
+   *
+   * @throws IllegalStateException if already started
+   */
+  public synchronized void start(Listener listener) {
+    if (this.listener != null) {
+      throw new IllegalStateException("Observer analysis is already running");
+    }
+    this.listener = listener;
+    timer.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Adds an observer to a game's analysis, starting the analysis if it is
+   * the game's first subscriber. The first update arrives within an interval.
+   *
+   * @param gameState the game, whose position is read only when the analysis starts
+   */
+  public void subscribe(int gameID, String authToken, GameState gameState) {
+    watches.compute(gameID, (id, watch) -> {
+      if (watch == null) {
+        watch = new Watch(gameState.copyGame());
+      }
+      watch.subscribers.add(authToken);
+      return watch;
+    });
+  }
+
+  /**
+   * Removes an observer from a game's analysis, stopping the analysis if
+   * nobody is left
+   *
+   * @return false if the observer was not subscribed
+   */
+  public boolean unsubscribe(int gameID, String authToken) {
+    boolean[] removed = new boolean[1];
+    watches.computeIfPresent(gameID, (id, watch) -> {
+      removed[0] = watch.subscribers.remove(authToken);
+      if (watch.subscribers.isEmpty()) {
+        watch.stop();
+        return null;
+      }
+      return watch;
+    });
+    return removed[0];
+  }
+
+  /**
+   * Removes an observer from every game's analysis, for a closed connection
+   */
+  public void unsubscribeEverywhere(String authToken) {
+    for (Integer gameID : watches.keySet()) {
+      unsubscribe(gameID, authToken);
+    }
+  }
+
+  /**
+   * Restarts a game's analysis from its new position after a move. Cheap
+   * for games nobody watches.
+   */
+  public void positionChanged(int gameID, GameState gameState) {
+    Watch watch = watches.get(gameID);
+    if (watch != null) {
+      watch.reset(gameState.copyGame());
+    }
+  }
+
+  /**
+   * Drops a finished game's analysis; its subscribers hear the result from
+   * the game itself
+   */
+  public void gameEnded(int gameID) {
+    Watch watch = watches.remove(gameID);
+    if (watch != null) {
+      watch.stop();
+    }
+  }
+
+  /**
+   * @return true if {@code authToken} is subscribed to the game's analysis
+   */
+  public boolean isSubscribed(int gameID, String authToken) {
+    Watch watch = watches.get(gameID);
+    return watch != null && watch.subscribers.contains(authToken);
+  }
+
+  /**
+   * @return games with at least one subscriber
+   */
+  public int getWatchedGameCount() {
+    return watches.size();
+  }
+
+  private void tick() {
+    watches.forEach((gameID, watch) -> {
+      ChessGame position = watch.claimSearch(maxDepth);
+      if (position != null) {
+        searchers.execute(() -> analyze(gameID, watch, position));
+      }
+    });
+  }
+
+  private void analyze(int gameID, Watch watch, ChessGame position) {
+    List<PrincipalVariation> variations = List.of();
+    try {
+      Search search = searches.get();
+      if (watch.begin(search)) {
+        variations = search.searchLines(position, new SearchLimits(maxDepth, intervalMillis / 2), lines);
+      }
+    } catch (RuntimeException e) {
+      System.err.println("Could not analyse game " + gameID + " for observers: " + e.getMessage());
+    } finally {
+      variations = watch.finish(position, variations);
+    }
+    if (variations.isEmpty()) {
+      return;
+    }
+
+    // Built once for every subscriber
+    boolean whiteToMove = position.getTeamTurn() == ChessGame.TeamColor.WHITE;
+    List<AnalysisData.Line> analysisLines = new ArrayList<>(variations.size());
+    for (PrincipalVariation variation : variations) {
+      int score = whiteToMove ? variation.score() : -variation.score();
+      analysisLines.add(new AnalysisData.Line(score, variation.moveStrings()));
+    }
+    AnalysisData analysis = new AnalysisData(gameID, variations.get(0).depth(), analysisLines);
+    Set<String> subscribers = Set.copyOf(watch.subscribers);
+    if (!subscribers.isEmpty() && watches.get(gameID) == watch) {
+      listener.publish(gameID, subscribers, analysis);
+    }
+  }
+
+  /**
+   * One watched game: its subscribers, its latest position, and how far the
+   * analysis of that position has got
+   */
+  private static final class Watch {
+    final Set<String> subscribers = ConcurrentHashMap.newKeySet();
+    private ChessGame position;
+    private boolean searching;
+    private boolean settled;
+    private boolean stopped;
+    private int depth;
+    private Search search;
+
+    Watch(ChessGame position) {
+      this.position = position;
+    }
+
+    /**
+     * @return the position to search if it is worth searching now, or null
+     */
+    synchronized ChessGame claimSearch(int maxDepth) {
+      if (searching || settled || stopped || depth >= maxDepth) {
+        return null;
+      }
+      searching = true;
+      return position.copy();
+    }
+
+    /**
+     * @return false if the search should not start, the position having moved on
+     */
+    synchronized boolean begin(Search search) {
+      if (stopped) {
+        return false;
+      }
+      this.search = search;
+      return true;
+    }
+
+    /**
+     * Records a finished search
+     *
+     * @return the lines to publish: empty if the position has moved on, has
+     * no moves, or the search got no deeper than the last one
+     */
+    synchronized List<PrincipalVariation> finish(ChessGame searched, List<PrincipalVariation> variations) {
+      searching = false;
+      search = null;
+      if (stopped || searched.getPositionKey() != position.getPositionKey()) {
+        return List.of();
+      }
+      int reached = variations.isEmpty() ? 0 : variations.get(0).depth();
+      if (reached <= depth) {
+        settled = true; // further searches would only repeat this one
+        return List.of();
+      }
+      depth = reached;
+      return variations;
+    }
+
+    synchronized void reset(ChessGame position) {
+      this.position = position;
+      depth = 0;
+      settled = false;
+      if (search != null) {
+        search.stop();
+      }
+    }
+
+    synchronized void stop() {
+      stopped = true;
+      if (search != null) {
+        search.stop();
+      }
+    }
+  }
+}
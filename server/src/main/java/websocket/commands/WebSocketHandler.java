@@ -2,27 +2,44 @@ package websocket.commands;
 
 import org.eclipse.jetty.websocket.api.Session;
 import server.WebSocketServer;
+import websocket.EngineOpponent;
+import websocket.GameAnalyzer;
 import websocket.GameState;
+import websocket.HintService;
+import websocket.ObserverAnalysis;
 import websocket.messages.ServerMessage;
 import websocket.messages.ServerMessage.ServerMessageType;
 
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Collections;
 import com.google.gson.Gson;
 import chess.ChessGame;
+import chess.Move;
+import chess.engine.OpeningBook;
+import chess.engine.SearchResult;
+import chess.tablebase.Tablebase;
 
 import websocket.dto.GameStateDTO;
+import websocket.dto.LegalMovesDTO;
+import websocket.messages.AnalysisData;
+import websocket.messages.HighlightData;
 
 // Import your DAOs and data models
+import dataaccess.AnalysisDAO;
 import dataaccess.AuthDAO;
 import dataaccess.GameDAO;
 import dataaccess.DataAccessException;
 import model.AuthData;
 import model.GameData;
 import chess.ChessMove;
+import chess.ChessPosition;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class WebSocketHandler {
   private static  Gson gSon= new Gson();
@@ -34,10 +51,42 @@ public class WebSocketHandler {
   private final AuthDAO authDAO;
   private final GameDAO gameDAO;
 
+  // Plays one side of games against the computer, off the WebSocket threads
+  private final EngineOpponent engine;
+
+  // Scores the moves of finished games on low-priority threads
+  private final GameAnalyzer analyzer;
+
+  // Streams one shared engine analysis per watched game to the observers who subscribe
+  private final ObserverAnalysis observerAnalysis;
+
+  // Suggests moves from a cached shallow search, rate limited per user
+  private final HintService hints;
+
   public WebSocketHandler(WebSocketServer server) {
+    this(server, new AuthDAO(), new GameDAO());
+  }
+
+  // Lets benchmarks and tests supply DAOs that do not need a database
+  public WebSocketHandler(WebSocketServer server, AuthDAO authDAO, GameDAO gameDAO) {
+    this(server, authDAO, gameDAO, EngineOpponent.withConfiguredLimits());
+  }
+
+  public WebSocketHandler(WebSocketServer server, AuthDAO authDAO, GameDAO gameDAO, EngineOpponent engine) {
+    this(server, authDAO, gameDAO, engine, GameAnalyzer.withConfiguredLimits(new AnalysisDAO()),
+            ObserverAnalysis.withConfiguredLimits(engine.getTablebase()), HintService.withConfiguredLimits(engine));
+  }
+
+  public WebSocketHandler(WebSocketServer server, AuthDAO authDAO, GameDAO gameDAO, EngineOpponent engine,
+                          GameAnalyzer analyzer, ObserverAnalysis observerAnalysis, HintService hints) {
     this.server = server;
-    this.authDAO = new AuthDAO(); // Instantiate the DAO
-    this.gameDAO = new GameDAO(); // Instantiate the DAO
+    this.authDAO = authDAO;
+    this.gameDAO = gameDAO;
+    this.engine = engine;
+    this.analyzer = analyzer;
+    this.observerAnalysis = observerAnalysis;
+    this.hints = hints;
+    observerAnalysis.start(this::publishAnalysis);
   }
 
   public ServerMessage handleCommand(UserGameCommand command, Session session) {
@@ -55,6 +104,18 @@ public class WebSocketHandler {
       case RESIGN:
         System.out.println("Dispatching to handleResign");
         return handleResign(command);
+      case HIGHLIGHT:
+        return handleHighlight(command);
+      case BOOK_MOVE:
+        return handleBookMove(command);
+      case CLAIM_RESULT:
+        return handleClaimResult(command);
+      case SUBSCRIBE_ANALYSIS:
+        return handleSubscribeAnalysis(command);
+      case UNSUBSCRIBE_ANALYSIS:
+        return handleUnsubscribeAnalysis(command);
+      case HINT:
+        return handleHint(command);
       default:
         System.out.println("Unknown command type received");
         return new ServerMessage(ServerMessageType.ERROR, "Unknown command type");
@@ -105,12 +166,27 @@ public class WebSocketHandler {
       teamColor = ChessGame.TeamColor.BLACK;
     }
 
+    if (teamColor != null && teamColor == gameState.getEngineColor()) {
+      // The seat is free in the database, but the computer is playing it
+      return new ServerMessage(ServerMessageType.ERROR, "The computer is playing " + teamColor + " in this game");
+    }
+
     boolean addedAsPlayer;
     if (teamColor != null) {
       // Add the player as they are assigned in the game
       addedAsPlayer = gameState.addPlayer(authToken, userName);
       if (addedAsPlayer) {
         gameState.assignPlayerTeamColor(authToken, teamColor); // Ensure team color is set
+        ChessGame.TeamColor engineColor = command.getEngineColor();
+        if (engineColor != null && engineColor != teamColor) {
+          // The computer may only take a seat nobody has, before the first move
+          String opponentName = engineColor == ChessGame.TeamColor.WHITE
+                  ? gameData.whiteUsername() : gameData.blackUsername();
+          if (opponentName != null || !gameState.setEngineColor(engineColor)) {
+            return new ServerMessage(ServerMessageType.ERROR,
+                    "The computer can only play a free side of a game that has not started");
+          }
+        }
       } else {
         // If adding the player failed, return an error
         return new ServerMessage(ServerMessageType.ERROR, "Failed to add player to the game");
@@ -137,6 +213,13 @@ public class WebSocketHandler {
     System.out.println("Players in game: " + gameState.getPlayers());
     System.out.println("Observers in game: " + gameState.getObservers());
 
+    // If the computer has the first move, it plays as soon as the player is in.
+    // Send the board first, so a book reply cannot overtake it.
+    if (gameState.isEngineTurn()) {
+      server.sendMessage(session, gSon.toJson(loadGameMessage));
+      scheduleEngineMove(gameID, gameState);
+      return null;
+    }
     return loadGameMessage;
   }
   private ServerMessage handleLeave(UserGameCommand command) {
@@ -167,6 +250,8 @@ public class WebSocketHandler {
     boolean removed = gameState.removePlayer(authToken) || gameState.removeObserver(authToken);
 
     if (removed) {
+      observerAnalysis.unsubscribe(gameID, authToken);
+
       // Synchronize with the database
       try {
         GameData gameData = gameDAO.getGame(gameID);
@@ -191,6 +276,7 @@ public class WebSocketHandler {
       // If no players are left, remove the GameState
       if (gameState.getPlayers().isEmpty()) {
         GAME_STATES.remove(gameID);
+        observerAnalysis.gameEnded(gameID);
       }
 
       // Notify others in the game
@@ -198,6 +284,9 @@ public class WebSocketHandler {
       server.broadcastNotification(gameID, notificationMessage, authToken);
 
       return null;
+    } else if (gameState.isGameOver()) {
+      // The game ended, by a move or another resignation, since the check above
+      return new ServerMessage(ServerMessageType.ERROR, "The game is already over. You cannot resign.");
     } else {
       return new ServerMessage(ServerMessageType.ERROR, "You are not part of this game.");
     }
@@ -236,10 +325,8 @@ public class WebSocketHandler {
     boolean resigned = gameState.markResigned(authToken);
 
     if (resigned) {
-      // Mark the game as over if only one player remains
-      if (gameState.getPlayers().size() <= 1) {
-        gameState.setGameOver(true);
-      }
+      analyzeFinishedGame(gameID, gameState);
+      observerAnalysis.gameEnded(gameID);
 
       // Notify others in the game
       String notificationMessage = userName + " has resigned.";
@@ -250,11 +337,236 @@ public class WebSocketHandler {
     }
   }
 
+  private ServerMessage handleHighlight(UserGameCommand command) {
+    String authToken = command.getAuthToken();
+    try {
+      if (authDAO.getAuth(authToken) == null) {
+        return new ServerMessage(ServerMessageType.ERROR, "Invalid auth token");
+      }
+    } catch (DataAccessException e) {
+      e.printStackTrace();
+      return new ServerMessage(ServerMessageType.ERROR, "Server error during authentication");
+    }
+
+    GameState gameState = GAME_STATES.get(command.getGameID());
+    if (gameState == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "Game not found");
+    }
+
+    String square = command.getPieceSquare();
+    if (square == null || !square.matches("^[a-h][1-8]$")) {
+      return new ServerMessage(ServerMessageType.ERROR, "Invalid square: " + square);
+    }
+    ChessPosition position = ChessPosition.of(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+
+    // Served from the shared legal-move cache
+    LegalMovesDTO legalMoves = gameState.getLegalMoves(position);
+    List<String> targets = new ArrayList<>();
+    for (ChessPosition target : legalMoves.getLegalMoves()) {
+      targets.add(target.toString());
+    }
+    ServerMessage highlightMessage = new ServerMessage(ServerMessageType.HIGHLIGHT, "Legal moves for " + square);
+    highlightMessage.setHighlightData(new HighlightData(square, targets));
+    return highlightMessage;
+  }
+
+  private ServerMessage handleBookMove(UserGameCommand command) {
+    try {
+      if (authDAO.getAuth(command.getAuthToken()) == null) {
+        return new ServerMessage(ServerMessageType.ERROR, "Invalid auth token");
+      }
+    } catch (DataAccessException e) {
+      e.printStackTrace();
+      return new ServerMessage(ServerMessageType.ERROR, "Server error during authentication");
+    }
+
+    GameState gameState = GAME_STATES.get(command.getGameID());
+    if (gameState == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "Game not found");
+    }
+    OpeningBook book = engine.getBook();
+    if (book == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "No opening book is available");
+    }
+
+    int move = book.bestMove(gameState.copyGame());
+    if (move == Move.NONE) {
+      return new ServerMessage(ServerMessageType.NOTIFICATION, "This position is not in the opening book");
+    }
+    return new ServerMessage(ServerMessageType.NOTIFICATION, "Book move: " + Move.toString(move));
+  }
+
+  private ServerMessage handleClaimResult(UserGameCommand command) {
+    int gameID = command.getGameID();
+    String authToken = command.getAuthToken();
+    String userName;
+    try {
+      AuthData authData = authDAO.getAuth(authToken);
+      if (authData == null) {
+        return new ServerMessage(ServerMessageType.ERROR, "Invalid auth token");
+      }
+      userName = authData.username();
+    } catch (DataAccessException e) {
+      e.printStackTrace();
+      return new ServerMessage(ServerMessageType.ERROR, "Server error during authentication");
+    }
+
+    GameState gameState = GAME_STATES.get(gameID);
+    if (gameState == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "Game not found");
+    }
+    Tablebase tablebase = engine.getTablebase();
+    if (tablebase == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "No endgame tables are available");
+    }
+
+    GameState.MoveResult claim = gameState.claimResult(authToken, tablebase);
+    if (!claim.isSuccessful()) {
+      return new ServerMessage(ServerMessageType.ERROR, claim.getErrorMessage());
+    }
+    analyzeFinishedGame(gameID, gameState);
+    observerAnalysis.gameEnded(gameID);
+
+    // Everyone in the game, the claimant included, learns the result
+    ServerMessage gameOverMessage = new ServerMessage(ServerMessageType.GAME_OVER,
+            userName + " claimed the result. " + claim.getMoveDescription());
+    for (String recipientAuthToken : getRecipientsForGame(gameID)) {
+      Session recipientSession = server.getSessionByAuthToken(recipientAuthToken);
+      if (recipientSession != null && recipientSession.isOpen()) {
+        server.sendMessage(recipientSession, gSon.toJson(gameOverMessage));
+      }
+    }
+    return null;
+  }
+
+  private ServerMessage handleSubscribeAnalysis(UserGameCommand command) {
+    int gameID = command.getGameID();
+    String authToken = command.getAuthToken();
+    try {
+      if (authDAO.getAuth(authToken) == null) {
+        return new ServerMessage(ServerMessageType.ERROR, "Invalid auth token");
+      }
+    } catch (DataAccessException e) {
+      e.printStackTrace();
+      return new ServerMessage(ServerMessageType.ERROR, "Server error during authentication");
+    }
+
+    GameState gameState = GAME_STATES.get(gameID);
+    if (gameState == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "Game not found");
+    }
+    // Players would be getting the engine's help with their own game
+    synchronized (gameState) {
+      if (!gameState.getObservers().contains(authToken)) {
+        return new ServerMessage(ServerMessageType.ERROR, "Only observers can follow the engine's analysis");
+      }
+    }
+    if (gameState.isGameOver()) {
+      return new ServerMessage(ServerMessageType.ERROR, "The game is over.");
+    }
+
+    observerAnalysis.subscribe(gameID, authToken, gameState);
+    return new ServerMessage(ServerMessageType.NOTIFICATION, "Following the engine's analysis.");
+  }
+
+  private ServerMessage handleUnsubscribeAnalysis(UserGameCommand command) {
+    if (!observerAnalysis.unsubscribe(command.getGameID(), command.getAuthToken())) {
+      return new ServerMessage(ServerMessageType.ERROR, "You are not following the engine's analysis");
+    }
+    return new ServerMessage(ServerMessageType.NOTIFICATION, "Stopped following the engine's analysis.");
+  }
+
+  private ServerMessage handleHint(UserGameCommand command) {
+    String authToken = command.getAuthToken();
+    String userName;
+    try {
+      AuthData authData = authDAO.getAuth(authToken);
+      if (authData == null) {
+        return new ServerMessage(ServerMessageType.ERROR, "Invalid auth token");
+      }
+      userName = authData.username();
+    } catch (DataAccessException e) {
+      e.printStackTrace();
+      return new ServerMessage(ServerMessageType.ERROR, "Server error during authentication");
+    }
+
+    GameState gameState = GAME_STATES.get(command.getGameID());
+    if (gameState == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "Game not found");
+    }
+    if (gameState.isGameOver()) {
+      return new ServerMessage(ServerMessageType.ERROR, "The game is over.");
+    }
+    ChessGame.TeamColor playerColor = gameState.getPlayerTeamColor(authToken);
+    if (playerColor == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "Only players can ask for a hint");
+    }
+    ChessGame position = gameState.copyGame();
+    if (position.getTeamTurn() != playerColor) {
+      return new ServerMessage(ServerMessageType.ERROR, "It is not your turn");
+    }
+
+    CompletableFuture<SearchResult> hint = hints.requestHint(userName, position);
+    if (hint == null) {
+      return new ServerMessage(ServerMessageType.ERROR, "Too many hints; try again in a few seconds");
+    }
+    if (hint.isDone() && !hint.isCompletedExceptionally()) {
+      return hintMessage(hint.join());
+    }
+    // Answered from the engine's pool once the search is done
+    hint.thenAccept(result -> {
+      Session session = server.getSessionByAuthToken(authToken);
+      if (session != null && session.isOpen()) {
+        server.sendMessage(session, gSon.toJson(hintMessage(result)));
+      }
+    }).exceptionally(e -> {
+      e.printStackTrace();
+      return null;
+    });
+    return null;
+  }
+
+  private static ServerMessage hintMessage(SearchResult result) {
+    if (result.bestMove() == Move.NONE) {
+      return new ServerMessage(ServerMessageType.NOTIFICATION, "There is no move to suggest");
+    }
+    return new ServerMessage(ServerMessageType.NOTIFICATION, "Hint: " + Move.toString(result.bestMove()));
+  }
+
+  /**
+   * Sends a new analysis to its subscribers. The message is serialized once,
+   * however many there are.
+   */
+  private void publishAnalysis(int gameID, Set<String> subscribers, AnalysisData analysis) {
+    ServerMessage analysisMessage = new ServerMessage(ServerMessageType.ANALYSIS,
+            "Analysis at depth " + analysis.getDepth());
+    analysisMessage.setData(analysis);
+    String json = gSon.toJson(analysisMessage);
+    for (String subscriberAuthToken : subscribers) {
+      Session subscriberSession = server.getSessionByAuthToken(subscriberAuthToken);
+      if (subscriberSession != null && subscriberSession.isOpen()) {
+        server.sendMessage(subscriberSession, json);
+      }
+    }
+  }
+
+  /**
+   * Hands a game that has just ended to the analyzer. Returns at once; if the
+   * analyzer is too far behind, the game is not analysed.
+   */
+  private void analyzeFinishedGame(int gameID, GameState gameState) {
+    List<ChessMove> moves = gameState.getMoveHistory();
+    if (!moves.isEmpty() && !analyzer.submit(gameID, moves)) {
+      System.out.println("Analysis queue is full; game " + gameID + " will not be analysed");
+    }
+  }
+
   public void removeUserFromAllGames(String authToken) {
     GAME_STATES.values().forEach(gameState -> {
       gameState.removePlayer(authToken);
       gameState.removeObserver(authToken);
     });
+    observerAnalysis.unsubscribeEverywhere(authToken);
     authTokenToSession.remove(authToken);
   }
 
@@ -266,17 +578,20 @@ public class WebSocketHandler {
 
     Set<String> recipients = new HashSet<>();
 
-    // Add all players
-    recipients.addAll(gameState.getPlayers().keySet());
+    // Engine replies are broadcast from a search thread while players come and go
+    synchronized (gameState) {
+      // Add all players
+      recipients.addAll(gameState.getPlayers().keySet());
 
-    // Add all observers
-    recipients.addAll(gameState.getObservers());
+      // Add all observers
+      recipients.addAll(gameState.getObservers());
+    }
 
     return recipients;
   }
 
 
-  private ServerMessage handleMakeMove(UserGameCommand command) {
+  public ServerMessage handleMakeMove(UserGameCommand command) {
     int gameID = command.getGameID();
     String authToken = command.getAuthToken();
     ChessMove move = command.getMove();
@@ -316,6 +631,26 @@ public class WebSocketHandler {
       return null; // We've already sent the error message
     }
 
+    broadcastMove(gameID, gameState, moveResult, userName, authToken);
+    scheduleEngineMove(gameID, gameState);
+
+    System.out.println("MAKE_MOVE successful for gameID: " + gameID + ", move: " + move);
+
+    // Return null since we've already sent the necessary messages
+    return null;
+  }
+
+  /**
+   * Sends the position after a move to everyone in the game, tells the others
+   * who moved, and announces the result if the move ended the game
+   *
+   * @param moverAuthToken the moving player, who is not sent the notification;
+   *                       null when the computer moved
+   */
+  private void broadcastMove(int gameID, GameState gameState, GameState.MoveResult moveResult,
+                             String moverName, String moverAuthToken) {
+    observerAnalysis.positionChanged(gameID, gameState);
+
     // Convert GameState to GameStateDTO
     GameStateDTO dto = gameState.toDTO();
 
@@ -343,12 +678,12 @@ public class WebSocketHandler {
 
 
 
-    String notificationText = userName + " has made a move.";
+    String notificationText = moverName + " has made a move.";
     ServerMessage notificationMessage = new ServerMessage(ServerMessageType.NOTIFICATION, notificationText);
 
     // Optionally exclude the moving player from receiving the notification
     Set<String> notificationRecipients = new HashSet<>(recipients);
-    notificationRecipients.remove(authToken); // Exclude the moving player if desired
+    notificationRecipients.remove(moverAuthToken); // Exclude the moving player if desired
 
     for (String recipientAuthToken : notificationRecipients) {
       Session recipientSession = server.getSessionByAuthToken(recipientAuthToken);
@@ -358,10 +693,11 @@ public class WebSocketHandler {
       }
     }
 
-    // If the game is over, send a GAME_OVER message
-    if (gameState.isGameOver()) {
-      ServerMessage gameOverMessage = new ServerMessage(ServerMessageType.GAME_OVER, "Checkmate. ");
-      String winnerUsername = gameState.getWinnerUsername();
+    // If this move ended the game, send a GAME_OVER message
+    if (moveResult.isGameEnded()) {
+      analyzeFinishedGame(gameID, gameState);
+      observerAnalysis.gameEnded(gameID);
+      ServerMessage gameOverMessage = new ServerMessage(ServerMessageType.GAME_OVER, moveResult.getMoveDescription());
       for (String recipientAuthToken : recipients) {
         Session recipientSession = server.getSessionByAuthToken(recipientAuthToken);
         if (recipientSession != null && recipientSession.isOpen()) {
@@ -370,11 +706,31 @@ public class WebSocketHandler {
         }
       }
     }
+  }
 
-    System.out.println("MAKE_MOVE successful for gameID: " + gameID + ", move: " + move);
-
-    // Return null since we've already sent the necessary messages
-    return null;
+  /**
+   * Starts the computer's search if it is to move. The search runs on the
+   * engine's own pool, and its reply is played and broadcast from there, so
+   * the calling WebSocket thread returns at once.
+   */
+  private void scheduleEngineMove(int gameID, GameState gameState) {
+    if (!gameState.isEngineTurn()) {
+      return;
+    }
+    ChessGame position = gameState.copyGame();
+    long positionKey = position.getPositionKey();
+    engine.chooseMove(position).thenAccept(result -> {
+      GameState.MoveResult moveResult = gameState.makeEngineMove(result.bestChessMove(), positionKey);
+      if (!moveResult.isSuccessful()) {
+        // The game ended or moved on while the engine was thinking
+        System.out.println("Discarded engine move for game " + gameID + ": " + moveResult.getErrorMessage());
+        return;
+      }
+      broadcastMove(gameID, gameState, moveResult, GameState.ENGINE_NAME, null);
+    }).exceptionally(e -> {
+      e.printStackTrace();
+      return null;
+    });
   }
 
 
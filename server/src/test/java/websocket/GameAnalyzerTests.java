@@ -0,0 +1,64 @@
+package websocket;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.TranspositionTable;
+import dataaccess.AnalysisDAO;
+import model.MoveAnalysisData;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameAnalyzerTests {
+
+  // 1. f3 e5 2. g4 Qh4#
+  private static final List<ChessMove> FOOLS_MATE = List.of(
+          move(2, 6, 3, 6), move(7, 5, 5, 5), move(2, 7, 4, 7), move(8, 4, 4, 8));
+
+  @Test
+  @DisplayName("Every move is scored, and the move that allows mate is a blunder")
+  public void foolsMate() {
+    var analyzer = new GameAnalyzer(new AnalysisDAO(), 1, 3, 1, new TranspositionTable(1));
+    List<MoveAnalysisData> analysis = analyzer.analyze(7, FOOLS_MATE);
+
+    assertEquals(4, analysis.size());
+    assertEquals("g2g4", analysis.get(2).move());
+    assertTrue(analysis.get(2).blunder());
+    assertEquals("d8h4", analysis.get(3).move());
+    assertEquals("d8h4", analysis.get(3).bestMove());
+    assertFalse(analysis.get(3).blunder());
+  }
+
+  @Test
+  @DisplayName("Games beyond the queue's capacity are turned away without blocking")
+  public void backPressure() throws InterruptedException {
+    var started = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var dao = new AnalysisDAO() {
+      @Override
+      public void saveAnalysis(int gameID, List<MoveAnalysisData> moves) {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    var analyzer = new GameAnalyzer(dao, 1, 1, 1, new TranspositionTable(1));
+
+    assertTrue(analyzer.submit(1, FOOLS_MATE));
+    started.await();
+    assertTrue(analyzer.submit(2, FOOLS_MATE)); // waits in the queue
+    assertFalse(analyzer.submit(3, FOOLS_MATE));
+    assertEquals(1, analyzer.getRejectedCount());
+    release.countDown();
+  }
+
+  private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+    return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+  }
+}
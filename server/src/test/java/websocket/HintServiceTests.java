@@ -0,0 +1,71 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.Move;
+import chess.engine.ParallelSearch;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HintServiceTests {
+
+  private static EngineOpponent newEngine() {
+    return new EngineOpponent(ParallelSearch.newPool(1), new TranspositionTable(1), SearchLimits.ofDepth(1),
+            null, null);
+  }
+
+  @Test
+  @DisplayName("A position is searched once; asking again is served from the cache")
+  public void cached() {
+    var hints = new HintService(newEngine(), 3, 16, 1, 60_000);
+    var game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+
+    SearchResult first = hints.requestHint("alice", game).join();
+    assertEquals("a1a8", Move.toString(first.bestMove()));
+
+    // Over the limit, but the cached hint costs nothing
+    var second = hints.requestHint("alice", game.copy());
+    assertTrue(second.isDone());
+    assertSame(first, second.join());
+    assertEquals(1, hints.getSearches());
+    assertEquals(1, hints.getHits());
+  }
+
+  @Test
+  @DisplayName("Each user may start only so many searches")
+  public void rateLimited() {
+    var hints = new HintService(newEngine(), 1, 16, 2, 60_000);
+    var game = new ChessGame();
+
+    assertNotNull(hints.requestHint("alice", game));
+    game.setTeamTurn(ChessGame.TeamColor.BLACK);
+    assertNotNull(hints.requestHint("alice", game));
+    var other = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+    assertNull(hints.requestHint("alice", other));
+    assertNotNull(hints.requestHint("bob", other));
+    assertEquals(3, hints.getSearches());
+  }
+
+  @Test
+  @DisplayName("The cache keeps the most recently asked about positions")
+  public void evicted() {
+    var hints = new HintService(newEngine(), 1, 2, 10, 0);
+    var first = new ChessGame();
+    var second = first.copy();
+    second.setTeamTurn(ChessGame.TeamColor.BLACK);
+    var third = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+
+    hints.requestHint("alice", first).join();
+    hints.requestHint("alice", second).join();
+    hints.requestHint("alice", first).join(); // now the most recent
+    hints.requestHint("alice", third).join();
+    assertEquals(3, hints.getSearches());
+
+    assertTrue(hints.requestHint("alice", first).isDone());
+    hints.requestHint("alice", second).join();
+    assertEquals(4, hints.getSearches(), "The least recent position was kept");
+  }
+}
@@ -0,0 +1,67 @@
+package websocket;
+
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.*;
+import websocket.messages.AnalysisData;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObserverAnalysisTests {
+
+  private record Update(int gameID, Set<String> subscribers, AnalysisData analysis) {}
+
+  @Test
+  @DisplayName("One analysis per game reaches every subscriber, deeper each time, until it settles")
+  public void sharedAnalysis() throws InterruptedException {
+    List<Update> updates = new CopyOnWriteArrayList<>();
+    var settled = new CountDownLatch(1);
+    var analysis = new ObserverAnalysis(2, 50, 1, 3, new TranspositionTable(1), null);
+    analysis.start((gameID, subscribers, data) -> {
+      updates.add(new Update(gameID, subscribers, data));
+      if (data.getDepth() == 3) {
+        settled.countDown();
+      }
+    });
+
+    var game = new GameState(5);
+    analysis.subscribe(5, "a", game);
+    analysis.subscribe(5, "b", game);
+    analysis.subscribe(5, "c", game);
+    assertEquals(1, analysis.getWatchedGameCount());
+    assertTrue(settled.await(10, TimeUnit.SECONDS));
+    int count = updates.size();
+    Thread.sleep(300); // nothing more once the maximum depth is reached
+    assertEquals(count, updates.size());
+
+    int depth = 0;
+    for (Update update : updates) {
+      assertEquals(5, update.gameID());
+      assertEquals(Set.of("a", "b", "c"), update.subscribers());
+      assertTrue(update.analysis().getDepth() > depth);
+      assertEquals(2, update.analysis().getLines().size());
+      depth = update.analysis().getDepth();
+    }
+  }
+
+  @Test
+  @DisplayName("A game's analysis stops with its last subscriber, and only observers who subscribed are removed")
+  public void unsubscribe() {
+    var analysis = new ObserverAnalysis(1, 60_000, 1, 2, new TranspositionTable(1), null);
+    var game = new GameState(6);
+    analysis.subscribe(6, "a", game);
+    analysis.subscribe(6, "b", game);
+
+    assertFalse(analysis.unsubscribe(6, "c"));
+    assertTrue(analysis.unsubscribe(6, "a"));
+    assertFalse(analysis.isSubscribed(6, "a"));
+    assertEquals(1, analysis.getWatchedGameCount());
+    analysis.unsubscribeEverywhere("b");
+    assertEquals(0, analysis.getWatchedGameCount());
+  }
+}
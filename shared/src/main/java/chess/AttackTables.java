@@ -0,0 +1,63 @@
+package chess;
+
+import chess.attack.SlidingAttacks;
+
+/**
+ * Attack masks for the pieces whose reach does not depend on what else is on
+ * the board, plus the line geometry used for pins and checks. Each table is
+ * filled once when the class loads and indexed by square (see
+ * {@link Bitboards#square(int, int)}).
+ */
+final class AttackTables {
+
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+
+    /**
+     * Capture squares of a pawn, indexed by {@code TeamColor.ordinal()} and then square
+     */
+    static final long[][] PAWN = new long[2][64];
+
+    /**
+     * Squares strictly between two squares on a shared row, column or
+     * diagonal, or 0 if the squares are not aligned
+     */
+    static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * The whole row, column or diagonal through two squares, edge to edge,
+     * or 0 if the squares are not aligned
+     */
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            long bit = 1L << square;
+            KNIGHT[square] = Bitboards.knightAttacks(bit);
+            KING[square] = Bitboards.kingAttacks(bit);
+            for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                PAWN[color.ordinal()][square] = Bitboards.pawnAttacks(bit, color);
+            }
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                long toBit = 1L << to;
+                long fromBit = 1L << from;
+                if ((SlidingAttacks.rook(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = SlidingAttacks.rook(from, toBit) & SlidingAttacks.rook(to, fromBit);
+                    LINE[from][to] = (SlidingAttacks.rook(from, 0L) & SlidingAttacks.rook(to, 0L)) | fromBit | toBit;
+                } else if ((SlidingAttacks.bishop(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = SlidingAttacks.bishop(from, toBit) & SlidingAttacks.bishop(to, fromBit);
+                    LINE[from][to] = (SlidingAttacks.bishop(from, 0L) & SlidingAttacks.bishop(to, 0L)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    static long pawn(ChessGame.TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+}
@@ -0,0 +1,80 @@
+package chess;
+
+/**
+ * Static helpers for working with 64-bit board masks.
+ * <p>
+ * Squares are numbered 0..63 starting at a1 (row 1, column 1) and running
+ * across each row, so bit {@code (row - 1) * 8 + (column - 1)} of a mask
+ * stands for that square. Shifting a mask left by 8 moves every square one
+ * row up the board (towards black's side).
+ */
+final class Bitboards {
+
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long NOT_FILE_A = ~FILE_A;
+    static final long NOT_FILE_H = ~FILE_H;
+    static final long NOT_FILE_AB = ~(FILE_A | (FILE_A << 1));
+    static final long NOT_FILE_GH = ~(FILE_H | (FILE_H >>> 1));
+    static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    private Bitboards() {
+    }
+
+    static int square(int row, int column) {
+        return (row - 1) * 8 + (column - 1);
+    }
+
+    static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static boolean onBoard(int row, int column) {
+        return row >= 1 && row <= 8 && column >= 1 && column <= 8;
+    }
+
+    /**
+     * @return index 0..11 of the mask holding this kind of piece
+     */
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    static int pieceIndex(ChessPiece piece) {
+        return pieceIndex(piece.getTeamColor(), piece.getPieceType());
+    }
+
+    static long knightAttacks(long knights) {
+        long l1 = (knights >>> 1) & NOT_FILE_H;
+        long l2 = (knights >>> 2) & NOT_FILE_GH;
+        long r1 = (knights << 1) & NOT_FILE_A;
+        long r2 = (knights << 2) & NOT_FILE_AB;
+        long h1 = l1 | r1;
+        long h2 = l2 | r2;
+        return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+    }
+
+    static long kingAttacks(long kings) {
+        long sides = ((kings << 1) & NOT_FILE_A) | ((kings >>> 1) & NOT_FILE_H);
+        long row = kings | sides;
+        return sides | (row << 8) | (row >>> 8);
+    }
+
+    /**
+     * @return the squares the given pawns capture on when they belong to {@code color}
+     */
+    static long pawnAttacks(long pawns, ChessGame.TeamColor color) {
+        if (color == ChessGame.TeamColor.WHITE) {
+            return ((pawns << 7) & NOT_FILE_H) | ((pawns << 9) & NOT_FILE_A);
+        }
+        return ((pawns >>> 9) & NOT_FILE_H) | ((pawns >>> 7) & NOT_FILE_A);
+    }
+}
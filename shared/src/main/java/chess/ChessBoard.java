@@ -1,5 +1,9 @@
 package chess;
 
+import chess.attack.SlidingAttacks;
+
+import java.util.Arrays;
+
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
@@ -7,8 +11,48 @@ package chess;
  * signature of the existing methods.
  */
 public class ChessBoard {
+
+    // castling rights bits, see castlingRights()
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+    static final int ALL_CASTLING = 15;
+
+    // castling rights lost when a piece moves from or to each square
+    private static final int[] CASTLING_LOST = new int[64];
+
+    static {
+        CASTLING_LOST[Bitboards.square(1, 1)] = WHITE_QUEENSIDE;
+        CASTLING_LOST[Bitboards.square(1, 5)] = WHITE_KINGSIDE | WHITE_QUEENSIDE;
+        CASTLING_LOST[Bitboards.square(1, 8)] = WHITE_KINGSIDE;
+        CASTLING_LOST[Bitboards.square(8, 1)] = BLACK_QUEENSIDE;
+        CASTLING_LOST[Bitboards.square(8, 5)] = BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        CASTLING_LOST[Bitboards.square(8, 8)] = BLACK_KINGSIDE;
+    }
+
     private ChessPiece[][] board;
 
+    // bitboard view of the same pieces, kept in sync by every write to the board
+    private final long[] pieceMasks = new long[12]; // indexed by Bitboards.pieceIndex
+    private final long[] colorMasks = new long[2];  // indexed by TeamColor.ordinal()
+    private long occupied;
+
+    // Zobrist key of the pieces, castling rights and en passant file, updated on every write
+    private long zobristKey;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+
+    // material and piece-square sums from white's point of view, and the game phase,
+    // updated on every write; see PieceSquareTables
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    // undo records for moves played with makeMove, most recent last
+    private long[] undoStack = new long[64];
+    private int undoCount;
+
     //constructor to initialize chess board
     public ChessBoard() {
         board=new ChessPiece[8][8];
@@ -18,15 +62,16 @@ public class ChessBoard {
         ChessBoard newBoard = new ChessBoard();
         for (int row = 1; row <= 8; row++) {
             for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
+                ChessPosition position = ChessPosition.of(row, col);
                 ChessPiece piece = this.getPiece(position);
                 if (piece != null) {
-                    // Create a new instance of ChessPiece
-                    ChessPiece newPiece = new ChessPiece(piece.getTeamColor(), piece.getPieceType());
-                    newBoard.addPiece(position, newPiece);
+                    // Pieces are immutable, so the copy can share them
+                    newBoard.addPiece(position, piece);
                 }
             }
         }
+        newBoard.setCastlingRights(castlingRights);
+        newBoard.setEnPassantSquare(enPassantSquare);
         return newBoard;
     }
 
@@ -37,7 +82,157 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow()-1][position.getColumn()-1]=piece;
+        setSquare(position.getRow()-1, position.getColumn()-1, piece);
+    }
+
+    ChessPiece pieceAt(int square) {
+        return board[square >>> 3][square & 7];
+    }
+
+    private void setSquare(int square, ChessPiece piece) {
+        setSquare(square >>> 3, square & 7, piece);
+    }
+
+    private void setSquare(int rowIndex, int colIndex, ChessPiece piece) {
+        int square = rowIndex * 8 + colIndex;
+        long bit = 1L << square;
+        ChessPiece previous = board[rowIndex][colIndex];
+        if (previous != null) {
+            int index = Bitboards.pieceIndex(previous);
+            pieceMasks[index] &= ~bit;
+            colorMasks[previous.getTeamColor().ordinal()] &= ~bit;
+            occupied &= ~bit;
+            zobristKey ^= Zobrist.piece(previous, square);
+            middlegameScore -= PieceSquareTables.MIDDLEGAME[index][square];
+            endgameScore -= PieceSquareTables.ENDGAME[index][square];
+            phase -= PieceSquareTables.PHASE[previous.getPieceType().ordinal()];
+        }
+        if (piece != null) {
+            int index = Bitboards.pieceIndex(piece);
+            pieceMasks[index] |= bit;
+            colorMasks[piece.getTeamColor().ordinal()] |= bit;
+            occupied |= bit;
+            zobristKey ^= Zobrist.piece(piece, square);
+            middlegameScore += PieceSquareTables.MIDDLEGAME[index][square];
+            endgameScore += PieceSquareTables.ENDGAME[index][square];
+            phase += PieceSquareTables.PHASE[piece.getPieceType().ordinal()];
+        }
+        board[rowIndex][colIndex]=piece;
+    }
+
+    /**
+     * Plays a move on this board in place and remembers how to take it back
+     * with {@link #unmakeMove()}. The move is not checked for legality.
+     * <p>
+     * If the move names a promotion piece and the moving piece is a pawn,
+     * the pawn is replaced by that piece. A king moving two squares castles,
+     * taking the rook with it, and a pawn moving diagonally onto an empty
+     * square captures en passant. Castling rights and the en passant square
+     * are updated to match.
+     *
+     * @param move the move to play
+     */
+    public void makeMove(ChessMove move) {
+        makeMove(Move.of(move));
+    }
+
+    /**
+     * Same as {@link #makeMove(ChessMove)} for a move packed as described in
+     * {@link Move}, which avoids creating a {@code ChessMove}
+     *
+     * @param move the packed move to play
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = pieceAt(from);
+        ChessPiece captured = pieceAt(to);
+        ChessPiece.PieceType type = piece.getPieceType();
+        ChessPiece.PieceType promotion = Move.promotion(move);
+        boolean promotes = promotion != null && type == ChessPiece.PieceType.PAWN;
+
+        // Told apart by their shape, so moves decoded from a ChessMove need no flags
+        int special = 0;
+        int enPassantVictim = -1;
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            special = UndoRecord.CASTLE;
+        } else if (type == ChessPiece.PieceType.PAWN && captured == null && ((from ^ to) & 7) != 0) {
+            special = UndoRecord.EN_PASSANT;
+            enPassantVictim = (from & ~7) | (to & 7);
+            captured = pieceAt(enPassantVictim);
+        }
+
+        pushUndo(UndoRecord.pack(from, to, piece, captured, promotes, special, castlingRights, enPassantSquare));
+        setSquare(from, null);
+        setSquare(to, promotes ? ChessPiece.of(piece.getTeamColor(), promotion) : piece);
+        if (special == UndoRecord.CASTLE) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            setSquare(rookTo, pieceAt(rookFrom));
+            setSquare(rookFrom, null);
+        } else if (enPassantVictim >= 0) {
+            setSquare(enPassantVictim, null);
+        }
+
+        int rights = castlingRights & ~(CASTLING_LOST[from] | CASTLING_LOST[to]);
+        if (rights != castlingRights) {
+            setCastlingRights(rights);
+        }
+        setEnPassantSquare(type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16
+                ? enPassantTarget(piece.getTeamColor(), from, to) : -1);
+    }
+
+    /**
+     * @return the square skipped by a pawn's double push if an enemy pawn
+     * stands ready to take it en passant, otherwise -1. Leaving the square
+     * unset when nothing can capture keeps such positions from hashing
+     * differently to the same position reached another way.
+     */
+    int enPassantTarget(ChessGame.TeamColor mover, int from, int to) {
+        ChessGame.TeamColor enemy = mover == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int skipped = (from + to) / 2;
+        return (AttackTables.pawn(mover, skipped) & pieces(enemy, ChessPiece.PieceType.PAWN)) != 0 ? skipped : -1;
+    }
+
+    /**
+     * Takes back the most recent move played with {@link #makeMove(ChessMove)},
+     * restoring any captured piece, the castling rights and the en passant square
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        long undo = undoStack[--undoCount];
+        int from = UndoRecord.from(undo);
+        int to = UndoRecord.to(undo);
+        ChessPiece moved = UndoRecord.promoted(undo) ? UndoRecord.movedPiece(undo) : pieceAt(to);
+        switch (UndoRecord.special(undo)) {
+            case UndoRecord.CASTLE -> {
+                int rookFrom = to > from ? from + 3 : from - 4;
+                int rookTo = (from + to) / 2;
+                setSquare(rookFrom, pieceAt(rookTo));
+                setSquare(rookTo, null);
+                setSquare(to, null);
+            }
+            case UndoRecord.EN_PASSANT -> {
+                setSquare((from & ~7) | (to & 7), UndoRecord.capturedPiece(undo));
+                setSquare(to, null);
+            }
+            default -> setSquare(to, UndoRecord.capturedPiece(undo));
+        }
+        setSquare(from, moved);
+        setCastlingRights(UndoRecord.castlingRights(undo));
+        setEnPassantSquare(UndoRecord.enPassantSquare(undo));
+    }
+
+    private void pushUndo(long undo) {
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+        }
+        undoStack[undoCount++] = undo;
     }
 
     /**
@@ -51,10 +246,175 @@ public class ChessBoard {
 
         return board[position.getRow()-1][position.getColumn()-1];
     }
+    /**
+     * @return the underlying square array; write through {@link #addPiece} so
+     * the bitboards stay in sync
+     */
     public ChessPiece[][] getBoard() {
         return board;
     }
 
+    /**
+     * Gets the Zobrist key of this board: the pieces on it, the castling rights
+     * and the en passant file. It does not include the side to move, see
+     * {@link ChessGame#getPositionKey()}.
+     * <p>
+     * The key is kept up to date as pieces are added and moves are made, so
+     * reading it costs nothing.
+     *
+     * @return 64-bit position key
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Gets the static evaluation of the pieces on this board: material plus
+     * piece-square bonuses, blended from middlegame to endgame values as
+     * queens, rooks and minor pieces come off. Like the Zobrist key it is
+     * kept up to date as pieces move, so reading it is a few arithmetic
+     * operations.
+     *
+     * @return score in centipawns, positive when white is better
+     */
+    int evaluate() {
+        int weight = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        return (middlegameScore * weight + endgameScore * (PieceSquareTables.MAX_PHASE - weight))
+                / PieceSquareTables.MAX_PHASE;
+    }
+
+    /**
+     * Gets the squares of every piece of one color and type as a mask, with
+     * bit {@code (row - 1) * 8 + (column - 1)} set for each: the square
+     * numbering {@link Move} uses
+     *
+     * @return the mask, 0 if there are no such pieces
+     */
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces(color, type);
+    }
+
+    /**
+     * @return the number of pieces on the board, kings included
+     */
+    public int getPieceCount() {
+        return Long.bitCount(occupied);
+    }
+
+    /**
+     * @return true if either side may still castle
+     */
+    public boolean hasCastlingRights() {
+        return castlingRights != 0;
+    }
+
+    /**
+     * @return true if a pawn may capture en passant on the next move
+     */
+    public boolean hasEnPassantSquare() {
+        return enPassantSquare >= 0;
+    }
+
+    /**
+     * @return mask of {@link #WHITE_KINGSIDE}, {@link #WHITE_QUEENSIDE},
+     * {@link #BLACK_KINGSIDE} and {@link #BLACK_QUEENSIDE}
+     */
+    int castlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Grants every castling right whose king and rook stand on their starting
+     * squares. Used for boards set up piece by piece, which carry no history
+     * saying whether those pieces have moved.
+     */
+    void inferCastlingRights() {
+        int rights = 0;
+        ChessPiece whiteRook = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        ChessPiece blackRook = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        if (ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING).equals(pieceAt(Bitboards.square(1, 5)))) {
+            rights |= whiteRook.equals(pieceAt(Bitboards.square(1, 8))) ? WHITE_KINGSIDE : 0;
+            rights |= whiteRook.equals(pieceAt(Bitboards.square(1, 1))) ? WHITE_QUEENSIDE : 0;
+        }
+        if (ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING).equals(pieceAt(Bitboards.square(8, 5)))) {
+            rights |= blackRook.equals(pieceAt(Bitboards.square(8, 8))) ? BLACK_KINGSIDE : 0;
+            rights |= blackRook.equals(pieceAt(Bitboards.square(8, 1))) ? BLACK_QUEENSIDE : 0;
+        }
+        setCastlingRights(rights);
+    }
+
+    void setCastlingRights(int rights) {
+        zobristKey ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[rights];
+        castlingRights = rights;
+    }
+
+    /**
+     * @return the square a pawn may capture en passant onto, or -1 if there is none
+     */
+    int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    void setEnPassantSquare(int square) {
+        if (enPassantSquare >= 0) {
+            zobristKey ^= Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
+        }
+        if (square >= 0) {
+            zobristKey ^= Zobrist.EN_PASSANT_FILE[square & 7];
+        }
+        enPassantSquare = square;
+    }
+
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceMasks[Bitboards.pieceIndex(color, type)];
+    }
+
+    long pieces(ChessGame.TeamColor color) {
+        return colorMasks[color.ordinal()];
+    }
+
+    long occupied() {
+        return occupied;
+    }
+
+    /**
+     * @return square index of the first king of the given color, or -1 if
+     * there is none on the board
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        long kings = pieces(color, ChessPiece.PieceType.KING);
+        return kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+    }
+
+    /**
+     * Determines if any piece of {@code attacker} attacks a square, using mask
+     * arithmetic instead of generating the attackers' moves
+     *
+     * @param square   square index, see {@link Bitboards#square(int, int)}
+     * @param attacker the team doing the attacking
+     */
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        return attackersTo(square, attacker, occupied) != 0;
+    }
+
+    /**
+     * @param square   square index, see {@link Bitboards#square(int, int)}
+     * @param attacker the team doing the attacking
+     * @param occupied occupancy to slide through, which may differ from the board's own
+     * @return every piece of {@code attacker} that attacks the square
+     */
+    long attackersTo(int square, ChessGame.TeamColor attacker, long occupied) {
+        ChessGame.TeamColor defender = attacker == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = pieces(attacker, ChessPiece.PieceType.QUEEN);
+
+        // a pawn attacks the target exactly when a defending pawn on the target would attack it
+        return (AttackTables.pawn(defender, square) & pieces(attacker, ChessPiece.PieceType.PAWN))
+                | (AttackTables.KNIGHT[square] & pieces(attacker, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.KING[square] & pieces(attacker, ChessPiece.PieceType.KING))
+                | (SlidingAttacks.rook(square, occupied) & (pieces(attacker, ChessPiece.PieceType.ROOK) | queens))
+                | (SlidingAttacks.bishop(square, occupied) & (pieces(attacker, ChessPiece.PieceType.BISHOP) | queens));
+    }
 
     /**
      * Sets the board to the default starting board
@@ -66,44 +426,54 @@ public class ChessBoard {
                 board[i][j]=null;
             }
         }
+        Arrays.fill(pieceMasks, 0L);
+        Arrays.fill(colorMasks, 0L);
+        occupied = 0L;
+        zobristKey = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        castlingRights = 0;
+        enPassantSquare = -1;
         placeWhitePieces();
         placeBlackPieces();
+        setCastlingRights(ALL_CASTLING);
     }
 
         private void placeWhitePieces () {
 
             for (int i=0; i < 8; i++) {
-                board[1][i]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+                setSquare(1, i, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
             }
 
-            board[0][0]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-            board[0][7]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+            setSquare(0, 0, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+            setSquare(0, 7, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
 
-            board[0][1]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-            board[0][6]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+            setSquare(0, 1, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+            setSquare(0, 6, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
 
-            board[0][2]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-            board[0][5]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
+            setSquare(0, 2, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+            setSquare(0, 5, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
 
-            board[0][3]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-            board[0][4]=new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+            setSquare(0, 3, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+            setSquare(0, 4, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
         }
 
         private void placeBlackPieces () {
             for (int i=0; i < 8; i++) {
-                board[6][i]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+                setSquare(6, i, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
             }
-            board[7][0]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-            board[7][7]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+            setSquare(7, 0, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+            setSquare(7, 7, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
 
-            board[7][1]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-            board[7][6]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+            setSquare(7, 1, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+            setSquare(7, 6, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
 
-            board[7][2]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-            board[7][5]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+            setSquare(7, 2, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+            setSquare(7, 5, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
 
-            board[7][3]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-            board[7][4]=new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+            setSquare(7, 3, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+            setSquare(7, 4, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
         }
 
     @Override
@@ -152,39 +522,17 @@ public class ChessBoard {
 
         ChessBoard that = (ChessBoard) o;
 
-        // Compare each position on the board
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece thisPiece = this.board[row][col];
-                ChessPiece thatPiece = that.board[row][col];
-
-                if (thisPiece == null && thatPiece == null) {
-                    continue; // Both are empty, so move on
-                }
-
-                if (thisPiece == null || thatPiece == null) {
-                    return false; // One is empty but the other is not
-                }
-
-                // Compare both pieces' type and team color
-                if (!thisPiece.equals(thatPiece)) {
-                    return false; // The pieces are different
-                }
-            }
-        }
-
-        return true;
+        // Same color and type on every square is the same as identical piece masks
+        return Arrays.equals(this.pieceMasks, that.pieceMasks);
     }
     @Override
     public int hashCode() {
-        int result = 1;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = board[row][col];
-                result = 31 * result + (piece != null ? piece.hashCode() : 0);
-            }
+        // equals only looks at the pieces, so leave castling and en passant out of the hash
+        long pieceKey = zobristKey ^ Zobrist.CASTLING[castlingRights];
+        if (enPassantSquare >= 0) {
+            pieceKey ^= Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
         }
-        return result;
+        return Long.hashCode(pieceKey);
     }
 
 
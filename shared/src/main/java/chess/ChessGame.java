@@ -1,5 +1,6 @@
 package chess;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.ArrayList;
 
@@ -11,83 +12,142 @@ import java.util.ArrayList;
  */
 public class ChessGame {
 
+    /**
+     * Half-moves without a capture or pawn move after which either side may claim a draw
+     */
+    public static final int FIFTY_MOVE_LIMIT = 100;
+
     private ChessBoard board;
     private TeamColor currentTurn;
+
+    // Position key and halfmove clock of every position played through this
+    // game, most recent last, so repetitions and the fifty-move rule are read
+    // off without replaying the game
+    private long[] keyHistory = new long[128];
+    private int[] clockHistory = new int[128];
+    private int historySize;
+    // half-moves played before the first position in the history, for the fullmove number
+    private int firstPly;
+
     public ChessGame() {
         this.board = new ChessBoard();
         this.currentTurn = TeamColor.WHITE;
         this.board.resetBoard();
+        startHistory(0);
     }
 
-    private boolean isSquareUnderAttack(ChessBoard board, ChessPosition position, ChessGame.TeamColor teamColor) {
-        if (position == null) {
-            return false;
-        }
-
-        ChessGame.TeamColor opponentColor = getOpponentColor(teamColor);
-
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition attackerPosition = new ChessPosition(row, col);
-                ChessPiece attacker = board.getPiece(attackerPosition);
+    /**
+     * Creates a game from a position in Forsyth-Edwards Notation. Missing
+     * trailing fields take their usual defaults: white to move, no castling,
+     * no en passant square and move counters of 0 and 1.
+     *
+     * @param fen the position, e.g. {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}
+     * @return a game set up at that position
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
+    }
 
-                if (isAttackingPosition(attacker, board, attackerPosition, position, opponentColor)) {
-                    return true;
-                }
-            }
-        }
+    /**
+     * @return the current position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        return Fen.format(this);
+    }
 
-        return false;
+    /**
+     * Creates an independent copy of this game, including the move history
+     * used for repetitions, that can be played on without affecting this one.
+     * Moves already played cannot be taken back on the copy.
+     *
+     * @return the copy
+     */
+    public ChessGame copy() {
+        ChessGame copy = new ChessGame();
+        copy.board = board.deepCopyBoard();
+        copy.currentTurn = currentTurn;
+        copy.keyHistory = keyHistory.clone();
+        copy.clockHistory = clockHistory.clone();
+        copy.historySize = historySize;
+        copy.firstPly = firstPly;
+        return copy;
     }
 
     public ChessGame.TeamColor getOpponentColor(ChessGame.TeamColor teamColor) {
         return (teamColor == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
     }
 
-    private boolean isAttackingPosition(ChessPiece attacker, ChessBoard board, ChessPosition attackerPosition,
-                                        ChessPosition targetPosition, ChessGame.TeamColor opponentColor) {
-        if (attacker == null || attacker.getTeamColor() != opponentColor) {
-            return false;
-        }
+    /**
+     * @return Which team's turn it is
+     */
+    public TeamColor getTeamTurn() {
+        return currentTurn;
+    }
 
-        if (attacker.getPieceType() == ChessPiece.PieceType.PAWN) {
-            return isPawnAttacking(attackerPosition, targetPosition, opponentColor);
+    /**
+     * Set's which teams turn it is
+     *
+     * @param team the team whose turn it is
+     */
+    public void setTeamTurn(TeamColor team) {
+        this.currentTurn = team;
+        keyHistory[historySize - 1] = getPositionKey();
+        if (historySize == 1) {
+            firstPly = (firstPly & ~1) | (team == TeamColor.BLACK ? 1 : 0);
         }
-
-        return isOtherPieceAttacking(attacker, board, attackerPosition, targetPosition);
     }
 
-    private boolean isPawnAttacking(ChessPosition attackerPosition, ChessPosition targetPosition, ChessGame.TeamColor opponentColor) {
-        int direction = (opponentColor == ChessGame.TeamColor.WHITE) ? 1 : -1;
-        int attackRow = attackerPosition.getRow() + direction;
-
-        return attackRow == targetPosition.getRow() &&
-                (attackerPosition.getColumn() - 1 == targetPosition.getColumn() ||
-                        attackerPosition.getColumn() + 1 == targetPosition.getColumn());
+    /**
+     * Gets a 64-bit Zobrist key for the current position: the board's key
+     * (see {@link ChessBoard#getZobristKey()}) combined with the side to move.
+     * Equal positions always have equal keys, and different positions almost
+     * never do, so the key can stand in for the position in caches and
+     * repetition checks.
+     *
+     * @return the position key
+     */
+    public long getPositionKey() {
+        return getPositionKey(currentTurn);
     }
 
-    private boolean isOtherPieceAttacking(ChessPiece piece, ChessBoard board, ChessPosition attackerPosition, ChessPosition targetPosition) {
-        Collection<ChessMove> moves = piece.pieceMoves(board, attackerPosition);
-        return moves.stream().anyMatch(move -> move.getEndPosition().equals(targetPosition));
+    /**
+     * Gets the key this position would have if {@code toMove} were the side to
+     * move, see {@link #getPositionKey()}
+     *
+     * @param toMove the side to move
+     * @return the position key
+     */
+    public long getPositionKey(TeamColor toMove) {
+        long key = board.getZobristKey();
+        return toMove == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
     }
 
-
-
-
     /**
-     * @return Which team's turn it is
+     * Gets a static evaluation of the current position for the side to move:
+     * material and piece placement, weighted between middlegame and endgame
+     * values by how much material is left. It does not look at threats or
+     * checks; search from the position for that.
+     * <p>
+     * The board keeps the evaluation up to date as moves are made and taken
+     * back, so calling this costs next to nothing.
+     *
+     * @return score in centipawns, positive when the side to move is better
      */
-    public TeamColor getTeamTurn() {
-        return currentTurn;
+    public int evaluate() {
+        return evaluate(currentTurn);
     }
 
     /**
-     * Set's which teams turn it is
+     * Gets the static evaluation from {@code perspective}'s point of view, see
+     * {@link #evaluate()}
      *
-     * @param team the team whose turn it is
+     * @param perspective the team a positive score favours
+     * @return score in centipawns
      */
-    public void setTeamTurn(TeamColor team) {
-        this.currentTurn = team;
+    public int evaluate(TeamColor perspective) {
+        int score = board.evaluate();
+        return perspective == TeamColor.WHITE ? score : -score;
     }
 
     /**
@@ -98,6 +158,36 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Where a game stands for the team about to move, see {@link #evaluateStatus(TeamColor)}
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        /** Neither side has enough pieces left to deliver checkmate */
+        INSUFFICIENT_MATERIAL,
+        /** Fifty moves by each side without a capture or a pawn move */
+        FIFTY_MOVE_RULE,
+        /** The same position has come up three times with the same side to move */
+        THREEFOLD_REPETITION;
+
+        /**
+         * @return true if the game cannot continue
+         */
+        public boolean isGameOver() {
+            return this != ONGOING && this != CHECK;
+        }
+
+        /**
+         * @return true if the game has ended without a winner
+         */
+        public boolean isDraw() {
+            return isGameOver() && this != CHECKMATE;
+        }
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -111,49 +201,48 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(board, startPosition);
         Collection<ChessMove> legalMoves = new ArrayList<>();
+        MoveGenerator.generate(board, piece.getTeamColor(), 1L << Bitboards.square(startPosition), legalMoves);
+        return legalMoves;
+    }
 
-        for (ChessMove move : possibleMoves) {
-            // Create a copy of the board
-            ChessBoard tempBoard = board.deepCopyBoard();
-
-            // Simulate the move on the tempBoard
-            tempBoard.addPiece(move.getEndPosition(), tempBoard.getPiece(move.getStartPosition()));
-            tempBoard.addPiece(move.getStartPosition(), null);
-
-            // If the moving piece is the king, check if the new position is safe
-            if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-                if (!isSquareUnderAttack(tempBoard, move.getEndPosition(), piece.getTeamColor())) {
-                    legalMoves.add(move);
-                }
-            } else {
-                // For other pieces, check if the move leaves the king in check
-                if (!isKingInCheckAfterMove(tempBoard, piece.getTeamColor())) {
-                    legalMoves.add(move);
-                }
-            }
-        }
+    /**
+     * Gets every valid move for the team whose turn it is
+     *
+     * @return all legal moves for the side to move, empty if it has none
+     */
+    public Collection<ChessMove> legalMoves() {
+        return legalMoves(currentTurn);
+    }
+
+    /**
+     * Gets every valid move for a team, whether or not it is that team's turn
+     *
+     * @param teamColor the team to get moves for
+     * @return all legal moves for the team, empty if it has none
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        Collection<ChessMove> legalMoves = new ArrayList<>();
+        MoveGenerator.generate(board, teamColor, -1L, legalMoves);
         return legalMoves;
     }
 
-    private boolean isKingInCheckAfterMove(ChessBoard board, ChessGame.TeamColor teamColor) {
-        // Find the king's position on the updated board
-        ChessPosition kingPosition = null;
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition pos = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(pos);
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                    kingPosition = pos;
-                    break;
-                }
-            }
-            if (kingPosition != null) {break;}
-        }
+    /**
+     * Fills {@code moves} with every valid move for a team as packed ints (see
+     * {@link Move}). The list is cleared first; reusing one list across calls
+     * means generation allocates nothing.
+     *
+     * @param teamColor the team to get moves for
+     * @param moves     the list to fill
+     */
+    public void legalMoves(TeamColor teamColor, MoveList moves) {
+        moves.clear();
+        MoveGenerator.generate(board, teamColor, -1L, moves);
+    }
 
-        // Check if the king is under attack
-        return isSquareUnderAttack(board, kingPosition, teamColor);
+    private boolean isKingInCheckAfterMove(ChessBoard board, ChessGame.TeamColor teamColor) {
+        int kingSquare = board.kingSquare(teamColor);
+        return kingSquare >= 0 && board.isSquareAttacked(kingSquare, getOpponentColor(teamColor));
     }
 
 
@@ -188,96 +277,139 @@ public class ChessGame {
         if (!moveFound) {
             throw new InvalidMoveException("Move not valid for this piece");
         }
+        makeLegalMove(move);
+    }
 
-        // Proceed with move validation and execution
-        // Clone the board and simulate the move
-        ChessBoard tempBoard = board.deepCopyBoard();
-        tempBoard.addPiece(move.getEndPosition(), piece);
-        tempBoard.addPiece(move.getStartPosition(), null); // Clear start position
-
-        // Check if the move leaves king in check
-        if(isInCheck(currentTurn)){
-            throw new InvalidMoveException("Move leaves the king in check");
-        }
-
-        // Move is validated, check for pawn promotion case
+    /**
+     * Makes a move that is already known to be legal for the team whose turn
+     * it is, such as one taken from {@link #legalMoves()}, without checking it
+     * again. A pawn reaching the last row becomes a queen unless the move names
+     * another promotion piece.
+     *
+     * @param move the move to play
+     */
+    public void makeLegalMove(ChessMove move) {
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        ChessPiece.PieceType promotionType = null;
         if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
             // Check if the pawn has reached the last row
             if ((piece.getTeamColor() == TeamColor.WHITE && move.getEndPosition().getRow() == 8) ||
                     (piece.getTeamColor() == TeamColor.BLACK && move.getEndPosition().getRow() == 1)) {
-
-                // Get the promotion type
-                ChessPiece.PieceType promotionType = move.getPromotionPiece();
-                if (promotionType != null) {
-                    // Create the promoted piece
-                    ChessPiece promotedPiece = new ChessPiece(piece.getTeamColor(), promotionType);
-
-                    // Place the promoted piece at the end position
-                    board.addPiece(move.getEndPosition(), promotedPiece);
-                    board.addPiece(move.getStartPosition(), null); // Clear start position
-                } else {
-                    // If no promotion type was specified, promote automatically to Queen
-                    ChessPiece promotedPiece = new ChessPiece(piece.getTeamColor(), ChessPiece.PieceType.QUEEN);
-                    board.addPiece(move.getEndPosition(), promotedPiece);
-                    board.addPiece(move.getStartPosition(), null);
-                }
-            } else {
-                // If the pawn hasn't reached the last row, perform a regular pawn move
-                board.addPiece(move.getEndPosition(), piece);
-                board.addPiece(move.getStartPosition(), null); // Clear start position
+                // If no promotion type was specified, promote automatically to Queen
+                promotionType = move.getPromotionPiece() != null ? move.getPromotionPiece() : ChessPiece.PieceType.QUEEN;
             }
-        } else {
-            // For other piece types, perform a regular move
-            board.addPiece(move.getEndPosition(), piece);
-            board.addPiece(move.getStartPosition(), null); // Clear start position
         }
+        makeLegalMove(Move.of(new ChessMove(move.getStartPosition(), move.getEndPosition(), promotionType)));
+    }
+
+    /**
+     * Same as {@link #makeLegalMove(ChessMove)} for a packed move (see
+     * {@link Move}), such as one from {@link #legalMoves(TeamColor, MoveList)}.
+     * A promotion must name its piece. Take the move back with
+     * {@link #unmakeMove()}.
+     *
+     * @param move the packed move to play
+     */
+    public void makeLegalMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        boolean irreversible = board.pieceAt(from).getPieceType() == ChessPiece.PieceType.PAWN
+                || board.pieceAt(to) != null;
+        int clock = irreversible ? 0 : clockHistory[historySize - 1] + 1;
+        board.makeMove(move);
 
         // Switch turns
         currentTurn = (currentTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        pushHistory(getPositionKey(), clock);
     }
 
-
     /**
-     * Determines if the given team is in check
+     * Takes back the most recent move played through this game, restoring the
+     * board, the side to move and the halfmove clock
      *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * @throws IllegalStateException if no move has been played since the board was set
      */
+    public void unmakeMove() {
+        if (historySize == 1) {
+            throw new IllegalStateException("No move to take back");
+        }
+        board.unmakeMove();
+        historySize--;
+        currentTurn = (currentTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+    }
 
+    /**
+     * @return half-moves played since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return clockHistory[historySize - 1];
+    }
 
+    /**
+     * @return the number of the current full move, starting at 1 and
+     * increasing after each black move
+     */
+    public int getFullmoveNumber() {
+        return (firstPly + historySize - 1) / 2 + 1;
+    }
 
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = findKingPosition(teamColor);
-        if (kingPosition == null) {
-            return false; // No king found, cannot be in check
-        }
-
-        TeamColor opponentColor = getOpponentColor(teamColor);
+    /**
+     * Sets the move counters of a game set up part-way through, before any
+     * move has been played on it
+     */
+    void setMoveCounters(int halfmoveClock, int fullmoveNumber) {
+        clockHistory[historySize - 1] = halfmoveClock;
+        firstPly = (fullmoveNumber - 1) * 2 + (currentTurn == TeamColor.BLACK ? 1 : 0) - (historySize - 1);
+    }
 
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                if (isAttackingKing(position, kingPosition, opponentColor)) {
-                    return true; // King is under attack
-                }
+    /**
+     * Counts how often the current position, with the same side to move,
+     * castling rights and en passant square, has occurred in this game,
+     * including now. Only positions since the last capture or pawn move can
+     * match, so the scan stops there.
+     *
+     * @return the number of occurrences, at least 1
+     */
+    public int getRepetitionCount() {
+        int current = historySize - 1;
+        long key = keyHistory[current];
+        int oldest = Math.max(0, current - clockHistory[current]);
+        int count = 1;
+        for (int i = current - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == key) {
+                count++;
             }
         }
+        return count;
+    }
 
-        return false; // King is not in check
+    private void startHistory(int halfmoveClock) {
+        historySize = 0;
+        firstPly = currentTurn == TeamColor.BLACK ? 1 : 0;
+        pushHistory(getPositionKey(), halfmoveClock);
     }
 
-    private boolean isAttackingKing(ChessPosition position, ChessPosition kingPosition, TeamColor opponentColor) {
-        ChessPiece piece = board.getPiece(position);
-        if (piece == null || piece.getTeamColor() != opponentColor) {
-            return false; // Not an opponent's piece
+    private void pushHistory(long key, int halfmoveClock) {
+        if (historySize == keyHistory.length) {
+            keyHistory = Arrays.copyOf(keyHistory, historySize * 2);
+            clockHistory = Arrays.copyOf(clockHistory, historySize * 2);
         }
-
-        return isPieceThreateningKing(piece, position, kingPosition);
+        keyHistory[historySize] = key;
+        clockHistory[historySize++] = halfmoveClock;
     }
 
-    private boolean isPieceThreateningKing(ChessPiece piece, ChessPosition position, ChessPosition kingPosition) {
-        Collection<ChessMove> moves = piece.pieceMoves(board, position, this);
-        return moves.stream().anyMatch(move -> move.getEndPosition().equals(kingPosition));
+
+    /**
+     * Determines if the given team is in check
+     *
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
+     */
+
+
+
+    public boolean isInCheck(TeamColor teamColor) {
+        return isKingInCheckAfterMove(board, teamColor);
     }
 
 
@@ -294,19 +426,8 @@ public class ChessGame {
         }
 
         // Search for a valid move to resolve check
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> validMoves = validMoves(position);
-
-                    if (validMoves != null && !validMoves.isEmpty()) {
-                        return false; // Found a move that resolves the check
-                    }
-                }
-            }
+        if (!legalMoves(teamColor).isEmpty()) {
+            return false; // Found a move that resolves the check
         }
 
         // No valid moves to resolve the check; it's checkmate
@@ -316,22 +437,6 @@ public class ChessGame {
 
 
 
-    //helper method to find king position
-
-    private ChessPosition findKingPosition(TeamColor teamColor){
-        for (int row = 1; row <= 8; row++){
-            for (int col = 1; col <= 8; col++){
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-
-                if(piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor){
-                    return position; //found king
-                }
-            }
-        }
-        return null;
-    }
-
     /**
      * Determines if the given team is in stalemate, which here is defined as having
      * no valid moves
@@ -344,29 +449,89 @@ public class ChessGame {
             return false;
         }
 
-        for(int row  = 1; row <= 8; row++){
-            for (int col = 1; col <= 8; col++){
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-
-                if (piece != null && piece.getTeamColor() == teamColor){
-                    Collection<ChessMove> validMoves = validMoves(position);
-                    if(!validMoves.isEmpty()){
-                        return false;
-                    }
-                }
-            }
+        if (!legalMoves(teamColor).isEmpty()) {
+            return false;
         }
         return true;  //no valid moves it's a stalemate
     }
 
+    /**
+     * Works out check, checkmate, stalemate and draws for a team with a single
+     * legal-move generation, instead of the separate scans made by
+     * {@link #isInCheck}, {@link #isInCheckmate} and {@link #isInStalemate}
+     *
+     * @param teamColor the team about to move
+     * @return the status of the game for that team
+     */
+    public GameStatus evaluateStatus(TeamColor teamColor) {
+        return evaluateStatus(teamColor, legalMoves(teamColor));
+    }
+
+    /**
+     * Same as {@link #evaluateStatus(TeamColor)} for a caller that already has
+     * the team's legal moves, for example from a cache
+     *
+     * @param teamColor  the team about to move
+     * @param legalMoves every legal move of that team in the current position
+     * @return the status of the game for that team
+     */
+    public GameStatus evaluateStatus(TeamColor teamColor, Collection<ChessMove> legalMoves) {
+        boolean inCheck = isInCheck(teamColor);
+        if (legalMoves.isEmpty()) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (hasInsufficientMaterial()) {
+            return GameStatus.INSUFFICIENT_MATERIAL;
+        }
+        if (getRepetitionCount() >= 3) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        if (getHalfmoveClock() >= FIFTY_MOVE_LIMIT) {
+            return GameStatus.FIFTY_MOVE_RULE;
+        }
+        return inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+    }
+
+    /**
+     * Kings alone, a king and one minor piece against a king, or kings and
+     * bishops that all stand on the same square color cannot force mate
+     */
+    private boolean hasInsufficientMaterial() {
+        long heavy = 0L;
+        long bishops = 0L;
+        long knights = 0L;
+        for (TeamColor color : TeamColor.values()) {
+            heavy |= board.pieces(color, ChessPiece.PieceType.PAWN)
+                    | board.pieces(color, ChessPiece.PieceType.ROOK)
+                    | board.pieces(color, ChessPiece.PieceType.QUEEN);
+            bishops |= board.pieces(color, ChessPiece.PieceType.BISHOP);
+            knights |= board.pieces(color, ChessPiece.PieceType.KNIGHT);
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        if (Long.bitCount(bishops | knights) <= 1) {
+            return true;
+        }
+        return knights == 0
+                && ((bishops & Bitboards.LIGHT_SQUARES) == 0 || (bishops & ~Bitboards.LIGHT_SQUARES) == 0);
+    }
+
     /**
      * Sets this game's chessboard with a given board
+     * <p>
+     * If the board has no castling rights, such as one set up with
+     * {@link ChessBoard#addPiece}, every king and rook on its starting square
+     * is taken not to have moved. The move history starts over from this board.
      *
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        if (board.castlingRights() == 0) {
+            board.inferCastlingRights();
+        }
+        startHistory(0);
     }
 
     /**
@@ -2,8 +2,8 @@ package chess;
 
 import java.util.Collection;
 import java.util.ArrayList;
-import java.util.Objects;
 import chess.ChessGame;
+import chess.attack.SlidingAttacks;
 
 /**
  * Represents a single chess piece
@@ -12,13 +12,45 @@ import chess.ChessGame;
  * signature of the existing methods.
  */
 public class ChessPiece {
-    private ChessGame.TeamColor teamColor;
-    private PieceType pieceType;
+    private static final PieceType[] PROMOTION_TYPES = {
+            PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+    // one shared instance per color and type, indexed by Bitboards.pieceIndex
+    private static final ChessPiece[] CANONICAL = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                CANONICAL[Bitboards.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    private final ChessGame.TeamColor teamColor;
+    private final PieceType pieceType;
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceType = type;
         this.teamColor = pieceColor;
     }
 
+    /**
+     * Gets the shared instance of a piece. Pieces are immutable, so one
+     * instance per color and type can stand on any number of squares and
+     * boards; prefer this to the constructor.
+     *
+     * @return the canonical piece of that color and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return CANONICAL[Bitboards.pieceIndex(pieceColor, type)];
+    }
+
+    /**
+     * @return the canonical piece with the given {@link Bitboards#pieceIndex}
+     */
+    static ChessPiece byIndex(int pieceIndex) {
+        return CANONICAL[pieceIndex];
+    }
+
 
     /**
      * The various different chess piece options
@@ -90,153 +122,78 @@ public class ChessPiece {
     }
     //Helper methods
     private void addRookMoves(ChessBoard board, ChessPosition position, Collection<ChessMove> validMoves) {
-        // Move up (row decrement)
-        addLineMoves(board, position, validMoves, -1, 0);
-        // Move down (row increment)
-        addLineMoves(board, position, validMoves, 1, 0);
-        // Move left (column decrement)
-        addLineMoves(board, position, validMoves, 0, -1);
-        // Move right (column increment)
-        addLineMoves(board, position, validMoves, 0, 1);
+        long targets = SlidingAttacks.rook(Bitboards.square(position), board.occupied()) & ~board.pieces(teamColor);
+        addMovesToTargets(position, targets, validMoves);
     }
 
 
     private void addBishopMoves(ChessBoard board, ChessPosition position, Collection<ChessMove> validMoves) {
-
-        // Top-right diagonal
-        addLineMoves(board, position, validMoves, -1, 1);
-
-        // Bottom-right diagonal
-        addLineMoves(board, position, validMoves, 1, 1);
-
-        // Bottom-left diagonal
-        addLineMoves(board, position, validMoves, 1, -1);
-
-        // Top-left diagonal
-        addLineMoves(board, position, validMoves, -1, -1);
+        long targets = SlidingAttacks.bishop(Bitboards.square(position), board.occupied()) & ~board.pieces(teamColor);
+        addMovesToTargets(position, targets, validMoves);
     }
 
 
     private void addKingMoves(ChessBoard board, ChessPosition position, Collection<ChessMove> validMoves, ChessGame game) {
-        int[] rowOffsets = {1, 1, 1, 0, 0, -1, -1, -1};
-        int[] colOffsets = {1, 0, -1, 1, -1, 1, 0, -1};
-
-        addMovesFromOffsets(board, position, validMoves, rowOffsets, colOffsets);
-
+        long targets = AttackTables.KING[Bitboards.square(position)] & ~board.pieces(teamColor);
+        addMovesToTargets(position, targets, validMoves);
     }
 
 
 
     private void addKnightMoves(ChessBoard board, ChessPosition position, Collection<ChessMove> validMoves) {
-        int[] rowOffsets = {2, 2, -2, -2, 1, 1, -1, -1};
-        int[] colOffsets = {1, -1, 1, -1, 2, -2, 2, -2};
-
-        addMovesFromOffsets(board, position, validMoves, rowOffsets, colOffsets);
-
+        long targets = AttackTables.KNIGHT[Bitboards.square(position)] & ~board.pieces(teamColor);
+        addMovesToTargets(position, targets, validMoves);
     }
 
-    private void addMovesFromOffsets(ChessBoard board, ChessPosition position, Collection<ChessMove> validMoves, int[] rowOffsets, int[] colOffsets) {
-        for (int i = 0; i < rowOffsets.length; i++) {
-            ChessPosition newPosition = new ChessPosition(position.getRow() + rowOffsets[i],
-                    position.getColumn() + colOffsets[i]);
-            if (isValidPosition(newPosition) &&
-                    (board.getPiece(newPosition) == null || board.getPiece(newPosition).getTeamColor() != this.teamColor)) {
-                validMoves.add(new ChessMove(position, newPosition, null));
-            }
+    private void addMovesToTargets(ChessPosition position, long targets, Collection<ChessMove> validMoves) {
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            validMoves.add(new ChessMove(position, ChessPosition.bySquare(target), null));
+            targets &= targets - 1;
         }
     }
+
     private void addPawnMoves(ChessBoard board, ChessPosition position, Collection<ChessMove> validMoves) {
         int direction = (teamColor == ChessGame.TeamColor.WHITE) ? 1 : -1;
+        int promotionRow = (teamColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
+        int startRow = (teamColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
+        long occupied = board.occupied();
 
         // Forward Move
-        ChessPosition forward = new ChessPosition(position.getRow() + direction, position.getColumn());
-        if (isValidPosition(forward) && board.getPiece(forward) == null) {
-            if ((teamColor == ChessGame.TeamColor.WHITE && forward.getRow() == 8) ||
-                    (teamColor == ChessGame.TeamColor.BLACK && forward.getRow() == 1)) {
-                // Promotion moves: Pawn can become Queen, Rook, Bishop, or Knight
-                for (ChessPiece.PieceType promotionType : new ChessPiece.PieceType[]{
-                        ChessPiece.PieceType.QUEEN,
-                        ChessPiece.PieceType.ROOK,
-                        ChessPiece.PieceType.BISHOP,
-                        ChessPiece.PieceType.KNIGHT}) {
-                    validMoves.add(new ChessMove(position, forward, promotionType));
-                }
-            } else {
-                validMoves.add(new ChessMove(position, forward, null));
-            }
+        int forwardRow = position.getRow() + direction;
+        if (forwardRow >= 1 && forwardRow <= 8
+                && (occupied & (1L << Bitboards.square(forwardRow, position.getColumn()))) == 0) {
+            addPawnMove(position, ChessPosition.of(forwardRow, position.getColumn()), promotionRow, validMoves);
 
             // Double forward move (only if pawn is in starting position)
-            if ((teamColor == ChessGame.TeamColor.WHITE && position.getRow() == 2) ||
-                    (teamColor == ChessGame.TeamColor.BLACK && position.getRow() == 7)) {
-                ChessPosition doubleForward = new ChessPosition(position.getRow() + 2 * direction, position.getColumn());
-                if (board.getPiece(doubleForward) == null) {
-                    validMoves.add(new ChessMove(position, doubleForward, null));
-                }
-            }
-        }
-
-        // Capture diagonally left
-        ChessPosition leftCapture = new ChessPosition(position.getRow() + direction, position.getColumn() - 1);
-        if (isValidPosition(leftCapture) && board.getPiece(leftCapture) != null && board.getPiece(leftCapture).getTeamColor() != this.teamColor) {
-            if ((teamColor == ChessGame.TeamColor.WHITE && leftCapture.getRow() == 8) ||
-                    (teamColor == ChessGame.TeamColor.BLACK && leftCapture.getRow() == 1)) {
-                // Promotion moves on capture
-                for (ChessPiece.PieceType promotionType : new ChessPiece.PieceType[]{
-                        ChessPiece.PieceType.QUEEN,
-                        ChessPiece.PieceType.ROOK,
-                        ChessPiece.PieceType.BISHOP,
-                        ChessPiece.PieceType.KNIGHT}) {
-                    validMoves.add(new ChessMove(position, leftCapture, promotionType));
+            if (position.getRow() == startRow) {
+                int doubleRow = forwardRow + direction;
+                if ((occupied & (1L << Bitboards.square(doubleRow, position.getColumn()))) == 0) {
+                    validMoves.add(new ChessMove(position, ChessPosition.of(doubleRow, position.getColumn()), null));
                 }
-            } else {
-                validMoves.add(new ChessMove(position, leftCapture, null));
             }
         }
 
-        // Capture diagonally right
-        ChessPosition rightCapture = new ChessPosition(position.getRow() + direction, position.getColumn() + 1);
-        if (isValidPosition(rightCapture) && board.getPiece(rightCapture) != null && board.getPiece(rightCapture).getTeamColor() != this.teamColor) {
-            if ((teamColor == ChessGame.TeamColor.WHITE && rightCapture.getRow() == 8) ||
-                    (teamColor == ChessGame.TeamColor.BLACK && rightCapture.getRow() == 1)) {
-                // Promotion moves on capture
-                for (ChessPiece.PieceType promotionType : new ChessPiece.PieceType[]{
-                        ChessPiece.PieceType.QUEEN,
-                        ChessPiece.PieceType.ROOK,
-                        ChessPiece.PieceType.BISHOP,
-                        ChessPiece.PieceType.KNIGHT}) {
-                    validMoves.add(new ChessMove(position, rightCapture, promotionType));
-                }
-            } else {
-                validMoves.add(new ChessMove(position, rightCapture, null));
-            }
+        // Diagonal captures
+        long captures = AttackTables.pawn(teamColor, Bitboards.square(position))
+                & board.pieces(teamColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        while (captures != 0) {
+            int target = Long.numberOfTrailingZeros(captures);
+            addPawnMove(position, ChessPosition.bySquare(target), promotionRow, validMoves);
+            captures &= captures - 1;
         }
     }
 
-    private void addLineMoves(ChessBoard board, ChessPosition position, Collection<ChessMove> validMoves, int rowIncrement, int colIncrement) {
-        int currentRow = position.getRow() + rowIncrement;
-        int currentCol = position.getColumn() + colIncrement;
-
-        while (isValidPosition(new ChessPosition(currentRow, currentCol))) {
-            ChessPosition newPosition = new ChessPosition(currentRow, currentCol);
-            ChessPiece pieceAtNewPosition = board.getPiece(newPosition);
-
-            if (pieceAtNewPosition == null) {
-                validMoves.add(new ChessMove(position, newPosition, null));
-            } else {
-
-                if (pieceAtNewPosition.getTeamColor() != this.teamColor) {
-                    validMoves.add(new ChessMove(position, newPosition, null));
-                }
-                break;
+    private void addPawnMove(ChessPosition position, ChessPosition target, int promotionRow, Collection<ChessMove> validMoves) {
+        if (target.getRow() == promotionRow) {
+            // Promotion moves: Pawn can become Queen, Rook, Bishop, or Knight
+            for (ChessPiece.PieceType promotionType : PROMOTION_TYPES) {
+                validMoves.add(new ChessMove(position, target, promotionType));
             }
-
-            currentRow += rowIncrement;
-            currentCol += colIncrement;
+        } else {
+            validMoves.add(new ChessMove(position, target, null));
         }
     }
-    private boolean isValidPosition(ChessPosition position) {
-        return position.getRow() >= 1 && position.getRow() <= 8 && position.getColumn() >= 1 && position.getColumn() <= 8;
-    }
 
     @Override
     public boolean equals(Object o) {
@@ -271,6 +228,6 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(teamColor, pieceType);
+        return teamColor.ordinal() * 6 + pieceType.ordinal();
     }
 }
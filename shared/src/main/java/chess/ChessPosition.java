@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -9,12 +7,42 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessPosition {
-    private int row;
-    private int column;
+    // one shared instance per board square, indexed by Bitboards.square
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition((square >>> 3) + 1, (square & 7) + 1);
+        }
+    }
+
+    private final int row;
+    private final int column;
     public ChessPosition(int row, int column) {
         this.row = row;
         this.column = column;
     }
+
+    /**
+     * Gets the shared instance of a square. Positions are immutable, so this
+     * avoids allocating one every time a square is named.
+     *
+     * @return the canonical position for an on-board square, or a new
+     * position if the coordinates are off the board
+     */
+    public static ChessPosition of(int row, int column) {
+        if (row < 1 || row > 8 || column < 1 || column > 8) {
+            return new ChessPosition(row, column);
+        }
+        return SQUARES[(row - 1) * 8 + (column - 1)];
+    }
+
+    /**
+     * @return the canonical position for a {@link Bitboards#square} index
+     */
+    static ChessPosition bySquare(int square) {
+        return SQUARES[square];
+    }
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -58,7 +86,7 @@ public class ChessPosition {
     //hash cases
     @Override
     public int hashCode(){
-        return Objects.hash(row, column);
+        return 31 * row + column;
     }
 
 }
@@ -0,0 +1,186 @@
+package chess;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation, see {@link ChessGame#fromFen(String)}
+ * and {@link ChessGame#toFen()}
+ */
+final class Fen {
+
+    static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("FEN placement must have 8 rows: " + fen);
+        }
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int column = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    column += c - '0';
+                    continue;
+                }
+                ChessPiece.PieceType type = switch (Character.toLowerCase(c)) {
+                    case 'k' -> ChessPiece.PieceType.KING;
+                    case 'q' -> ChessPiece.PieceType.QUEEN;
+                    case 'r' -> ChessPiece.PieceType.ROOK;
+                    case 'b' -> ChessPiece.PieceType.BISHOP;
+                    case 'n' -> ChessPiece.PieceType.KNIGHT;
+                    case 'p' -> ChessPiece.PieceType.PAWN;
+                    default -> throw new IllegalArgumentException("Unknown FEN piece '" + c + "': " + fen);
+                };
+                if (column > 8) {
+                    throw new IllegalArgumentException("FEN row too long: " + fen);
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, column++), ChessPiece.of(color, type));
+            }
+            if (column != 9) {
+                throw new IllegalArgumentException("FEN row must cover 8 squares: " + fen);
+            }
+        }
+
+        ChessGame.TeamColor side = ChessGame.TeamColor.WHITE;
+        if (fields.length > 1) {
+            side = switch (fields[1]) {
+                case "w" -> ChessGame.TeamColor.WHITE;
+                case "b" -> ChessGame.TeamColor.BLACK;
+                default -> throw new IllegalArgumentException("FEN side to move must be w or b: " + fen);
+            };
+        }
+        int rights = 0;
+        if (fields.length > 2 && !fields[2].equals("-")) {
+            for (char c : fields[2].toCharArray()) {
+                rights |= switch (c) {
+                    case 'K' -> ChessBoard.WHITE_KINGSIDE;
+                    case 'Q' -> ChessBoard.WHITE_QUEENSIDE;
+                    case 'k' -> ChessBoard.BLACK_KINGSIDE;
+                    case 'q' -> ChessBoard.BLACK_QUEENSIDE;
+                    default -> throw new IllegalArgumentException("Unknown FEN castling right '" + c + "': " + fen);
+                };
+            }
+        }
+        int enPassant = -1;
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            enPassant = parseEnPassant(board, fields[3], fen);
+        }
+        int halfmoveClock = fields.length > 4 ? parseNumber(fields[4], fen) : 0;
+        int fullmoveNumber = fields.length > 5 ? Math.max(1, parseNumber(fields[5], fen)) : 1;
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        // after setBoard, which would otherwise infer rights from the placement
+        board.setCastlingRights(rights);
+        board.setEnPassantSquare(enPassant);
+        game.setTeamTurn(side);
+        game.setMoveCounters(halfmoveClock, fullmoveNumber);
+        return game;
+    }
+
+    static String format(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int column = 1; column <= 8; column++) {
+                ChessPiece piece = board.pieceAt(Bitboards.square(row, column));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(pieceChar(piece));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row > 1) {
+                sb.append('/');
+            }
+        }
+
+        sb.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        int rights = board.castlingRights();
+        if (rights == 0) {
+            sb.append('-');
+        } else {
+            appendIf(sb, rights, ChessBoard.WHITE_KINGSIDE, 'K');
+            appendIf(sb, rights, ChessBoard.WHITE_QUEENSIDE, 'Q');
+            appendIf(sb, rights, ChessBoard.BLACK_KINGSIDE, 'k');
+            appendIf(sb, rights, ChessBoard.BLACK_QUEENSIDE, 'q');
+        }
+        sb.append(' ');
+        int enPassant = board.enPassantSquare();
+        sb.append(enPassant < 0 ? "-" : ChessPosition.bySquare(enPassant).toString());
+        sb.append(' ').append(game.getHalfmoveClock());
+        sb.append(' ').append(game.getFullmoveNumber());
+        return sb.toString();
+    }
+
+    private static char pieceChar(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case ROOK -> 'r';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    private static void appendIf(StringBuilder sb, int rights, int right, char c) {
+        if ((rights & right) != 0) {
+            sb.append(c);
+        }
+    }
+
+    private static int parseSquare(String square, String fen) {
+        if (square.length() != 2 || square.charAt(0) < 'a' || square.charAt(0) > 'h'
+                || square.charAt(1) < '1' || square.charAt(1) > '8') {
+            throw new IllegalArgumentException("Bad FEN en passant square '" + square + "': " + fen);
+        }
+        return Bitboards.square(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    /**
+     * @return the en passant square, or -1 if no pawn could take on it; the
+     * same rule {@link ChessBoard#makeMove(ChessMove)} uses, so a position
+     * read from FEN hashes like the same position reached by playing
+     */
+    private static int parseEnPassant(ChessBoard board, String field, String fen) {
+        int square = parseSquare(field, fen);
+        int row = (square >>> 3) + 1;
+        if (row != 3 && row != 6) {
+            throw new IllegalArgumentException("FEN en passant square must be on row 3 or 6: " + fen);
+        }
+        ChessGame.TeamColor mover = row == 3 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        int from = row == 3 ? square - 8 : square + 8;
+        int to = row == 3 ? square + 8 : square - 8;
+        if (!ChessPiece.of(mover, ChessPiece.PieceType.PAWN).equals(board.pieceAt(to))) {
+            return -1; // no pawn can have just pushed past it
+        }
+        return board.enPassantTarget(mover, from, to);
+    }
+
+    private static int parseNumber(String field, String fen) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value < 0) {
+                throw new IllegalArgumentException("Negative FEN move counter: " + fen);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad FEN move counter '" + field + "': " + fen, e);
+        }
+    }
+}
@@ -10,8 +10,8 @@ public class Main {
 
     // Example move: White pawn from (1, 0) to (3, 0)
     try {
-      ChessPosition startPosition = new ChessPosition(1, 0); // starting position of white pawn
-      ChessPosition endPosition = new ChessPosition(3, 0); // move it two squares forward
+      ChessPosition startPosition = ChessPosition.of(1, 0); // starting position of white pawn
+      ChessPosition endPosition = ChessPosition.of(3, 0); // move it two squares forward
       ChessMove move = new ChessMove(startPosition, endPosition, null); // No promotion
 
       // Make the move
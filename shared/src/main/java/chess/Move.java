@@ -0,0 +1,101 @@
+package chess;
+
+/**
+ * Static helpers for moves packed into a single {@code int}, the form the move
+ * generator and search work with so that producing and storing moves
+ * allocates nothing. {@link ChessMove} objects are only made from them at the
+ * public API, see {@link #toChessMove(int)}.
+ * <p>
+ * Layout, from the low bits up: from square (6 bits), to square (6 bits),
+ * promotion piece as {@code PieceType.ordinal() + 1} with 0 meaning none
+ * (3 bits), and the {@code FLAG_*} bits. Squares are numbered as in
+ * {@link Bitboards#square(int, int)}. No real move has the value
+ * {@link #NONE}.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    /** The move takes an enemy piece */
+    public static final int FLAG_CAPTURE = 1 << 15;
+    /** A pawn advancing two squares from its starting row */
+    public static final int FLAG_DOUBLE_PUSH = 1 << 16;
+    /** A pawn capturing en passant; the captured pawn is not on the target square */
+    public static final int FLAG_EN_PASSANT = 1 << 17;
+    /** A king castling; the rook moves too */
+    public static final int FLAG_CASTLE = 1 << 18;
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << 12) | flags;
+    }
+
+    /**
+     * @return the packed form of {@code move}, without flags
+     */
+    public static int of(ChessMove move) {
+        return encode(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return the piece a pawn promotes to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> 12) & 7;
+        return promotionBits == 0 ? null : PIECE_TYPES[promotionBits - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (7 << 12)) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & FLAG_CAPTURE) != 0;
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return true if both moves go between the same squares with the same
+     * promotion, whatever their flags
+     */
+    public static boolean sameMove(int a, int b) {
+        return ((a ^ b) & 0x7FFF) == 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.bySquare(from(move)), ChessPosition.bySquare(to(move)), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, e.g. {@code e7e8q}
+     */
+    public static String toString(int move) {
+        String text = ChessPosition.bySquare(from(move)).toString() + ChessPosition.bySquare(to(move));
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            text += promotion == ChessPiece.PieceType.KNIGHT ? 'n' : Character.toLowerCase(promotion.name().charAt(0));
+        }
+        return text;
+    }
+}
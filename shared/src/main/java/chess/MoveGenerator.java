@@ -0,0 +1,282 @@
+package chess;
+
+import chess.attack.SlidingAttacks;
+
+import java.util.Collection;
+
+/**
+ * Generates strictly legal moves.
+ * <p>
+ * The pieces giving check and the pieces pinned to their king are worked out
+ * once per call. Every other move is then restricted to the squares that
+ * resolve the check and, for a pinned piece, to its pin line, so no move has
+ * to be tried on the board to find out whether it exposes the king.
+ * <p>
+ * Moves are written to a {@link MoveList} as packed ints (see {@link Move});
+ * generating into a reused list allocates nothing.
+ */
+final class MoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+
+    // scratch list for callers that want ChessMove objects
+    private static final ThreadLocal<MoveList> SCRATCH = ThreadLocal.withInitial(MoveList::new);
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Adds the legal moves of {@code color}'s pieces that stand on {@code fromSquares}
+     * as {@link ChessMove} objects
+     *
+     * @param fromSquares mask of origin squares to generate for, or -1 for every piece
+     */
+    static void generate(ChessBoard board, ChessGame.TeamColor color, long fromSquares,
+                         Collection<ChessMove> moves) {
+        MoveList list = SCRATCH.get();
+        list.clear();
+        generate(board, color, fromSquares, list);
+        list.addTo(moves);
+    }
+
+    /**
+     * Adds the legal moves of {@code color}'s pieces that stand on {@code fromSquares}
+     *
+     * @param fromSquares mask of origin squares to generate for, or -1 for every piece
+     */
+    static void generate(ChessBoard board, ChessGame.TeamColor color, long fromSquares, MoveList moves) {
+        long kings = board.pieces(color, ChessPiece.PieceType.KING);
+        if (Long.bitCount(kings) > 1) {
+            // Only hand-built test boards get here; check every move by playing it instead
+            generateByTrial(board, color, fromSquares, moves);
+            return;
+        }
+
+        ChessGame.TeamColor enemy = opponent(color);
+        long own = board.pieces(color);
+        long enemies = board.pieces(enemy);
+        long occupied = board.occupied();
+        int kingSquare = kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+
+        long checkMask = -1L;
+        long pinned = 0L;
+        if (kingSquare >= 0) {
+            long checkers = board.attackersTo(kingSquare, enemy, occupied);
+            if (checkers != 0 && (checkers & (checkers - 1)) == 0) {
+                int checker = Long.numberOfTrailingZeros(checkers);
+                checkMask = checkers | AttackTables.BETWEEN[kingSquare][checker];
+            }
+
+            // Enemy sliders that would see the king if our own pieces were not in the way
+            long enemyQueens = board.pieces(enemy, ChessPiece.PieceType.QUEEN);
+            long snipers = (SlidingAttacks.rook(kingSquare, enemies)
+                    & (board.pieces(enemy, ChessPiece.PieceType.ROOK) | enemyQueens))
+                    | (SlidingAttacks.bishop(kingSquare, enemies)
+                    & (board.pieces(enemy, ChessPiece.PieceType.BISHOP) | enemyQueens));
+            while (snipers != 0) {
+                int sniper = Long.numberOfTrailingZeros(snipers);
+                snipers &= snipers - 1;
+                long blockers = AttackTables.BETWEEN[kingSquare][sniper] & occupied;
+                if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                    pinned |= blockers & own;
+                }
+            }
+
+            if ((fromSquares & kings) != 0) {
+                addKingMoves(board, color, kingSquare, enemies, moves);
+                if (checkers == 0) {
+                    addCastlingMoves(board, color, kingSquare, moves);
+                }
+            }
+            if (Long.bitCount(checkers) > 1) {
+                // Double check: only the king can move
+                return;
+            }
+        }
+
+        long pieces = own & ~kings & fromSquares;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long allowed = checkMask;
+            if ((pinned & (1L << from)) != 0) {
+                // A pinned piece may only move along the line through its king
+                allowed &= AttackTables.LINE[kingSquare][from];
+            }
+
+            ChessPiece piece = board.pieceAt(from);
+            switch (piece.getPieceType()) {
+                case PAWN -> {
+                    addPawnMoves(color, from, occupied, enemies, allowed, moves);
+                    if (board.enPassantSquare() >= 0) {
+                        addEnPassant(board, color, from, kingSquare, moves);
+                    }
+                }
+                case KNIGHT -> addMoves(from, AttackTables.KNIGHT[from] & ~own & allowed, enemies, moves);
+                case BISHOP -> addMoves(from, SlidingAttacks.bishop(from, occupied) & ~own & allowed, enemies, moves);
+                case ROOK -> addMoves(from, SlidingAttacks.rook(from, occupied) & ~own & allowed, enemies, moves);
+                case QUEEN -> addMoves(from, SlidingAttacks.queen(from, occupied) & ~own & allowed, enemies, moves);
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void addKingMoves(ChessBoard board, ChessGame.TeamColor color, int kingSquare, long enemies,
+                                     MoveList moves) {
+        ChessGame.TeamColor enemy = opponent(color);
+        // Take the king off the board so it cannot hide behind itself on a checking line
+        long occupied = board.occupied() & ~(1L << kingSquare);
+        long targets = AttackTables.KING[kingSquare] & ~board.pieces(color);
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (board.attackersTo(to, enemy, occupied) == 0) {
+                moves.add(Move.encode(kingSquare, to, null, captureFlag(to, enemies)));
+            }
+        }
+    }
+
+    /**
+     * Adds castling for a king that is not in check. The king may not pass
+     * through or land on an attacked square, and every square between king
+     * and rook must be empty.
+     */
+    private static void addCastlingMoves(ChessBoard board, ChessGame.TeamColor color, int kingSquare,
+                                         MoveList moves) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int home = white ? Bitboards.square(1, 5) : Bitboards.square(8, 5);
+        int rights = board.castlingRights()
+                & (white ? ChessBoard.WHITE_KINGSIDE | ChessBoard.WHITE_QUEENSIDE
+                : ChessBoard.BLACK_KINGSIDE | ChessBoard.BLACK_QUEENSIDE);
+        if (rights == 0 || kingSquare != home) {
+            return;
+        }
+        long rooks = board.pieces(color, ChessPiece.PieceType.ROOK);
+        if ((rights & (ChessBoard.WHITE_KINGSIDE | ChessBoard.BLACK_KINGSIDE)) != 0) {
+            addCastle(board, color, home, home + 3, home + 2, rooks, moves);
+        }
+        if ((rights & (ChessBoard.WHITE_QUEENSIDE | ChessBoard.BLACK_QUEENSIDE)) != 0) {
+            addCastle(board, color, home, home - 4, home - 2, rooks, moves);
+        }
+    }
+
+    private static void addCastle(ChessBoard board, ChessGame.TeamColor color, int kingSquare, int rookSquare,
+                                  int target, long rooks, MoveList moves) {
+        if ((rooks & (1L << rookSquare)) == 0
+                || (AttackTables.BETWEEN[kingSquare][rookSquare] & board.occupied()) != 0) {
+            return;
+        }
+        ChessGame.TeamColor enemy = opponent(color);
+        int step = target > kingSquare ? 1 : -1;
+        for (int square = kingSquare + step; square != target + step; square += step) {
+            if (board.isSquareAttacked(square, enemy)) {
+                return;
+            }
+        }
+        moves.add(Move.encode(kingSquare, target, null, Move.FLAG_CASTLE));
+    }
+
+    /**
+     * Adds an en passant capture if the pawn on {@code from} can make one. The
+     * capture takes two pieces off one row at once, which can uncover a check
+     * the pin mask does not see, so it is checked against the board after the
+     * capture instead.
+     */
+    private static void addEnPassant(ChessBoard board, ChessGame.TeamColor color, int from, int kingSquare,
+                                     MoveList moves) {
+        int target = board.enPassantSquare();
+        int targetRow = color == ChessGame.TeamColor.WHITE ? 6 : 3;
+        if (Bitboards.row(target) != targetRow || (AttackTables.pawn(color, from) & (1L << target)) == 0) {
+            return;
+        }
+        int victim = (from & ~7) | (target & 7);
+        if (kingSquare >= 0) {
+            long occupied = (board.occupied() & ~(1L << from) & ~(1L << victim)) | (1L << target);
+            if ((board.attackersTo(kingSquare, opponent(color), occupied) & ~(1L << victim)) != 0) {
+                return;
+            }
+        }
+        moves.add(Move.encode(from, target, null, Move.FLAG_EN_PASSANT | Move.FLAG_CAPTURE));
+    }
+
+    private static void addPawnMoves(ChessGame.TeamColor color, int from, long occupied, long enemies,
+                                     long allowed, MoveList moves) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int forward = white ? 8 : -8;
+        int row = Bitboards.row(from);
+
+        int single = from + forward;
+        if (single >= 0 && single < 64 && (occupied & (1L << single)) == 0) {
+            if ((allowed & (1L << single)) != 0) {
+                addPawnMove(from, single, 0, moves);
+            }
+            int startRow = white ? 2 : 7;
+            int twice = single + forward;
+            if (row == startRow && (occupied & (1L << twice)) == 0 && (allowed & (1L << twice)) != 0) {
+                moves.add(Move.encode(from, twice, null, Move.FLAG_DOUBLE_PUSH));
+            }
+        }
+
+        long captures = AttackTables.pawn(color, from) & enemies & allowed;
+        while (captures != 0) {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            addPawnMove(from, to, Move.FLAG_CAPTURE, moves);
+        }
+    }
+
+    private static void addPawnMove(int from, int to, int flags, MoveList moves) {
+        int targetRow = Bitboards.row(to);
+        if (targetRow == 8 || targetRow == 1) {
+            for (ChessPiece.PieceType promotion : PROMOTION_TYPES) {
+                moves.add(Move.encode(from, to, promotion, flags));
+            }
+        } else {
+            moves.add(Move.encode(from, to, null, flags));
+        }
+    }
+
+    private static void addMoves(int from, long targets, long enemies, MoveList moves) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Move.encode(from, to, null, captureFlag(to, enemies)));
+        }
+    }
+
+    private static int captureFlag(int to, long enemies) {
+        return (enemies & (1L << to)) != 0 ? Move.FLAG_CAPTURE : 0;
+    }
+
+    /**
+     * Fallback for positions with more than one king of a color: play each
+     * pseudo-legal move and keep it if the first king is not left attacked
+     */
+    private static void generateByTrial(ChessBoard board, ChessGame.TeamColor color, long fromSquares,
+                                        MoveList moves) {
+        long enemies = board.pieces(opponent(color));
+        long pieces = board.pieces(color) & fromSquares;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece piece = board.pieceAt(from);
+            for (ChessMove candidate : piece.pieceMoves(board, ChessPosition.bySquare(from))) {
+                int move = Move.of(candidate);
+                board.makeMove(move);
+                int kingSquare = board.kingSquare(color);
+                boolean exposed = kingSquare >= 0 && board.isSquareAttacked(kingSquare, opponent(color));
+                board.unmakeMove();
+                if (!exposed) {
+                    moves.add(move | captureFlag(Move.to(move), enemies));
+                }
+            }
+        }
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
@@ -0,0 +1,161 @@
+package chess;
+
+import java.util.List;
+
+/**
+ * Perft ("performance test") driver for the move generator.
+ * <p>
+ * Perft walks the full game tree to a fixed depth through
+ * {@link ChessGame#validMoves(ChessPosition)} and counts the leaf positions.
+ * The counts for well-known positions are published, so a mismatch points
+ * straight at a move generation bug, and the time taken gives a throughput
+ * figure for comparing engine changes.
+ * <p>
+ * Run with no arguments to check every reference position, or with a FEN
+ * string and a depth to count a single position.
+ */
+public final class Perft {
+
+    /**
+     * A position with its published leaf counts, starting at depth 1
+     */
+    public record Reference(String name, String fen, long... nodes) {
+        public int maxDepth() {
+            return nodes.length;
+        }
+
+        public long expected(int depth) {
+            return nodes[depth - 1];
+        }
+    }
+
+    /**
+     * Reference positions and the depths they are checked to
+     */
+    public static final List<Reference> REFERENCES = List.of(
+            new Reference("Start position",
+                    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    20, 400, 8_902, 197_281, 4_865_609),
+            new Reference("Kiwipete",
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2_039, 97_862, 4_085_603),
+            new Reference("Rook and pawn endgame",
+                    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2_812, 43_238, 674_624),
+            new Reference("Castling and promotion",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6, 264, 9_467, 422_333),
+            new Reference("Middlegame without castling rights",
+                    "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2_079, 89_890),
+            new Reference("Promotions",
+                    "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                    24, 496, 9_483, 182_838)
+    );
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable in exactly {@code depth} moves from the
+     * game's current position. The game is left as it was found.
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor side = game.getTeamTurn();
+        long nodes = 0;
+        long pieces = board.pieces(side);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPosition position = ChessPosition.bySquare(square);
+            for (ChessMove move : game.validMoves(position)) {
+                if (depth == 1) {
+                    nodes++;
+                    continue;
+                }
+                game.makeLegalMove(move);
+                nodes += perft(game, depth - 1);
+                game.unmakeMove();
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Same count as {@link #perft(ChessGame, int)}, but generating packed moves
+     * into preallocated {@link MoveList}s the way the engine does, so the tree
+     * walk allocates nothing
+     */
+    public static long perftPacked(ChessGame game, int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+        return perftPacked(game, depth, lists);
+    }
+
+    private static long perftPacked(ChessGame game, int depth, MoveList[] lists) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = lists[depth];
+        ChessGame.TeamColor side = game.getTeamTurn();
+        game.legalMoves(side, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeLegalMove(moves.get(i));
+            nodes += perftPacked(game, depth - 1, lists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Builds a game from a FEN string, see {@link ChessGame#fromFen(String)}
+     *
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static ChessGame loadFen(String fen) {
+        return ChessGame.fromFen(fen);
+    }
+
+    public static void main(String[] args) {
+        if (args.length >= 2) {
+            String fen = String.join(" ", java.util.Arrays.copyOf(args, args.length - 1));
+            run(fen, Integer.parseInt(args[args.length - 1]), -1);
+            return;
+        }
+        boolean allPassed = true;
+        for (Reference reference : REFERENCES) {
+            System.out.println(reference.name() + ": " + reference.fen());
+            for (int depth = 1; depth <= reference.maxDepth(); depth++) {
+                allPassed &= run(reference.fen(), depth, reference.expected(depth));
+            }
+        }
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(String fen, int depth, long expected) {
+        ChessGame game = loadFen(fen);
+        long start = System.nanoTime();
+        long nodes = perft(game, depth);
+        long nanos = Math.max(1, System.nanoTime() - start);
+        long packedStart = System.nanoTime();
+        long packedNodes = perftPacked(game, depth);
+        long packedNanos = Math.max(1, System.nanoTime() - packedStart);
+        boolean passed = expected < 0 || (nodes == expected && packedNodes == expected);
+        System.out.printf("  depth %d: %,d nodes in %.1f ms (%,.0f nodes/s, packed %,.0f nodes/s)%s%n",
+                depth, nodes, nanos / 1e6, nodes * 1e9 / nanos, packedNodes * 1e9 / packedNanos,
+                passed ? "" : " MISMATCH, expected " + expected + ", packed counted " + packedNodes);
+        return passed;
+    }
+}
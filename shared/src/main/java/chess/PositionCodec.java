@@ -0,0 +1,131 @@
+package chess;
+
+/**
+ * Fixed-size binary encoding of a game's position: pieces, side to move,
+ * castling rights, en passant square and move counters in {@link #SIZE}
+ * bytes, against roughly 60 for a FEN string and far more for a square map.
+ * <p>
+ * Layout: an occupancy mask of 8 bytes (bit {@code n} set when square
+ * {@code n} holds a piece, see {@link Bitboards}), then 16 bytes holding one
+ * 4-bit piece index per occupied square in square order, high nibble first.
+ * Byte 24 holds the side to move in bit 0 (set for black) and the castling
+ * rights in bits 1-4, byte 25 the en passant square plus one (0 for none),
+ * byte 26 the halfmove clock capped at 255 and bytes 27-28 the fullmove
+ * number. The remaining bytes are zero.
+ * <p>
+ * Equal positions encode to equal bytes, so the encoding can serve as a
+ * map key once wrapped, e.g. in a {@link java.nio.ByteBuffer}.
+ */
+public final class PositionCodec {
+
+    public static final int SIZE = 32;
+
+    /**
+     * Most pieces an encoded board can hold, as many as a game can have
+     */
+    public static final int MAX_PIECES = 32;
+
+    private static final int PIECES_OFFSET = 8;
+    private static final int STATE_OFFSET = 24;
+
+    private PositionCodec() {
+    }
+
+    /**
+     * @return a new {@link #SIZE}-byte array holding the game's position
+     * @throws IllegalArgumentException if the board has more than {@link #MAX_PIECES} pieces
+     */
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[SIZE];
+        encode(game, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Writes the game's position into {@code target} starting at {@code offset},
+     * which needs {@link #SIZE} bytes of room
+     *
+     * @throws IllegalArgumentException if the board has more than {@link #MAX_PIECES} pieces
+     */
+    public static void encode(ChessGame game, byte[] target, int offset) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.occupied();
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Cannot encode more than " + MAX_PIECES + " pieces");
+        }
+        for (int i = 0; i < 8; i++) {
+            target[offset + i] = (byte) (occupied >>> (56 - 8 * i));
+        }
+        for (int i = PIECES_OFFSET; i < SIZE; i++) {
+            target[offset + i] = 0;
+        }
+        int nibble = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            int index = Bitboards.pieceIndex(board.pieceAt(Long.numberOfTrailingZeros(pieces)));
+            int at = offset + PIECES_OFFSET + nibble / 2;
+            target[at] |= (byte) ((nibble & 1) == 0 ? index << 4 : index);
+            nibble++;
+        }
+
+        int fullmove = Math.min(game.getFullmoveNumber(), 0xFFFF);
+        target[offset + STATE_OFFSET] = (byte) ((game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0)
+                | board.castlingRights() << 1);
+        target[offset + STATE_OFFSET + 1] = (byte) (board.enPassantSquare() + 1);
+        target[offset + STATE_OFFSET + 2] = (byte) Math.min(game.getHalfmoveClock(), 255);
+        target[offset + STATE_OFFSET + 3] = (byte) (fullmove >>> 8);
+        target[offset + STATE_OFFSET + 4] = (byte) fullmove;
+    }
+
+    /**
+     * @return a game set up at the position encoded in {@code bytes}
+     * @throws IllegalArgumentException if the array is not {@link #SIZE} bytes long
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes.length != SIZE) {
+            throw new IllegalArgumentException("Encoded position must be " + SIZE + " bytes, got " + bytes.length);
+        }
+        return decode(bytes, 0);
+    }
+
+    /**
+     * @return a game set up at the position encoded in {@code source} at {@code offset}
+     * @throws IllegalArgumentException if the bytes do not hold a valid position
+     */
+    public static ChessGame decode(byte[] source, int offset) {
+        long occupied = 0L;
+        for (int i = 0; i < 8; i++) {
+            occupied = (occupied << 8) | (source[offset + i] & 0xFF);
+        }
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Encoded position has more than " + MAX_PIECES + " pieces");
+        }
+        ChessBoard board = new ChessBoard();
+        int nibble = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            int packed = source[offset + PIECES_OFFSET + nibble / 2] & 0xFF;
+            int index = (nibble & 1) == 0 ? packed >>> 4 : packed & 15;
+            if (index >= 12) {
+                throw new IllegalArgumentException("Bad piece index " + index + " in encoded position");
+            }
+            board.addPiece(ChessPosition.bySquare(Long.numberOfTrailingZeros(pieces)), ChessPiece.byIndex(index));
+            nibble++;
+        }
+
+        int state = source[offset + STATE_OFFSET] & 0xFF;
+        int enPassant = (source[offset + STATE_OFFSET + 1] & 0xFF) - 1;
+        if (enPassant >= 64) {
+            throw new IllegalArgumentException("Bad en passant square in encoded position");
+        }
+        int halfmoveClock = source[offset + STATE_OFFSET + 2] & 0xFF;
+        int fullmove = ((source[offset + STATE_OFFSET + 3] & 0xFF) << 8) | (source[offset + STATE_OFFSET + 4] & 0xFF);
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        // after setBoard, which would otherwise infer rights from the placement
+        board.setCastlingRights((state >>> 1) & 15);
+        board.setEnPassantSquare(enPassant);
+        game.setTeamTurn((state & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setMoveCounters(halfmoveClock, Math.max(1, fullmove));
+        return game;
+    }
+}
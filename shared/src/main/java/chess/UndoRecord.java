@@ -0,0 +1,76 @@
+package chess;
+
+/**
+ * Packs everything {@link ChessBoard#unmakeMove()} needs into one {@code long}
+ * so that making and taking back a move allocates nothing.
+ * <p>
+ * Layout, from the low bits up: from square (6 bits), to square (6 bits),
+ * moving piece index (4 bits), captured piece index plus one with 0 meaning
+ * no capture (4 bits), a promotion flag (1 bit), the kind of special move
+ * (2 bits), the castling rights before the move (4 bits) and the en passant
+ * square before the move plus one with 0 meaning none (7 bits).
+ */
+final class UndoRecord {
+
+    static final int NORMAL = 0;
+    static final int CASTLE = 1;
+    static final int EN_PASSANT = 2;
+
+    private UndoRecord() {
+    }
+
+    static long pack(int from, int to, ChessPiece moved, ChessPiece captured, boolean promoted,
+                     int special, int castlingRights, int enPassantSquare) {
+        long captureBits = captured == null ? 0 : Bitboards.pieceIndex(captured) + 1;
+        return from
+                | ((long) to << 6)
+                | ((long) Bitboards.pieceIndex(moved) << 12)
+                | (captureBits << 16)
+                | (promoted ? 1L << 20 : 0L)
+                | ((long) special << 21)
+                | ((long) castlingRights << 23)
+                | ((long) (enPassantSquare + 1) << 27);
+    }
+
+    static int from(long undo) {
+        return (int) (undo & 63);
+    }
+
+    static int to(long undo) {
+        return (int) ((undo >>> 6) & 63);
+    }
+
+    static ChessPiece movedPiece(long undo) {
+        return ChessPiece.byIndex((int) ((undo >>> 12) & 15));
+    }
+
+    /**
+     * @return the piece that was captured, or null if the move was not a capture
+     */
+    static ChessPiece capturedPiece(long undo) {
+        int captureBits = (int) ((undo >>> 16) & 15);
+        return captureBits == 0 ? null : ChessPiece.byIndex(captureBits - 1);
+    }
+
+    static boolean promoted(long undo) {
+        return (undo & (1L << 20)) != 0;
+    }
+
+    /**
+     * @return {@link #NORMAL}, {@link #CASTLE} or {@link #EN_PASSANT}
+     */
+    static int special(long undo) {
+        return (int) ((undo >>> 21) & 3);
+    }
+
+    static int castlingRights(long undo) {
+        return (int) ((undo >>> 23) & 15);
+    }
+
+    /**
+     * @return the en passant square before the move, or -1 if there was none
+     */
+    static int enPassantSquare(long undo) {
+        return (int) ((undo >>> 27) & 127) - 1;
+    }
+}
@@ -0,0 +1,78 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing of positions.
+ * <p>
+ * A position's key is the XOR of one key per (piece, square) pair on the
+ * board, plus keys for the side to move, the castling rights and the file of
+ * the en passant square. Because XOR undoes itself, moving a piece only takes
+ * two or three XORs to update the key instead of rehashing the board.
+ * <p>
+ * The keys come from a fixed seed, so a position hashes the same way in every
+ * run. Anything written to disk keyed by position depends on that; do not
+ * change the seed or the order the keys are drawn in.
+ */
+final class Zobrist {
+
+    private static final long SEED = 0x2F0B_C0DE_C4E5_5L;
+
+    /**
+     * Indexed by {@link Bitboards#pieceIndex} and then square
+     */
+    static final long[][] PIECE_SQUARE = new long[12][64];
+
+    /**
+     * XORed in when black is to move
+     */
+    static final long BLACK_TO_MOVE;
+
+    /**
+     * Indexed by a 4-bit castling rights mask, see {@link ChessBoard#WHITE_KINGSIDE} and friends
+     */
+    static final long[] CASTLING = new long[16];
+
+    /**
+     * Indexed by column minus one of the en passant target square
+     */
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        long state = SEED;
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = mix(state += 0x9E3779B97F4A7C15L);
+            }
+        }
+        BLACK_TO_MOVE = mix(state += 0x9E3779B97F4A7C15L);
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            rights[i] = mix(state += 0x9E3779B97F4A7C15L);
+        }
+        for (int mask = 0; mask < CASTLING.length; mask++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = mix(state += 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(ChessPiece piece, int square) {
+        return PIECE_SQUARE[Bitboards.pieceIndex(piece)][square];
+    }
+
+    /**
+     * SplitMix64 output function
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
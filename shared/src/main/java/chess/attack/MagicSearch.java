@@ -0,0 +1,91 @@
+package chess.attack;
+
+/**
+ * Offline tool that finds the magic constants embedded in {@link SlidingAttacks}.
+ * <p>
+ * The search is seeded, so running it again prints the same constants. It
+ * takes far longer than filling the tables from known magics, which is why it
+ * is not run at startup.
+ */
+public final class MagicSearch {
+
+    private MagicSearch() {
+    }
+
+    public static void main(String[] args) {
+        print("ROOK_MAGICS", search(SlidingAttacks.ROOK_DIRECTIONS, 0x5EEDL));
+        print("BISHOP_MAGICS", search(SlidingAttacks.BISHOP_DIRECTIONS, 0xB15L));
+    }
+
+    static long[] search(int[][] directions, long seed) {
+        SplitMix64 random = new SplitMix64(seed);
+        long[] magics = new long[64];
+        long[] occupancies = new long[4096];
+        long[] reference = new long[4096];
+        long[] used = new long[4096];
+        int[] epoch = new int[4096];
+        int attempt = 0;
+        for (int square = 0; square < 64; square++) {
+            long mask = MagicTable.blockerMask(square, directions);
+            int shift = 64 - Long.bitCount(mask);
+            int count = 0;
+            long subset = 0L;
+            do {
+                occupancies[count] = subset;
+                reference[count] = MagicTable.slide(square, subset, directions);
+                count++;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            while (magics[square] == 0) {
+                long magic = random.next() & random.next() & random.next();
+                if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                    continue;
+                }
+                attempt++;
+                boolean collision = false;
+                for (int i = 0; i < count && !collision; i++) {
+                    int index = (int) ((occupancies[i] * magic) >>> shift);
+                    if (epoch[index] != attempt) {
+                        epoch[index] = attempt;
+                        used[index] = reference[i];
+                    } else if (used[index] != reference[i]) {
+                        collision = true;
+                    }
+                }
+                if (!collision) {
+                    magics[square] = magic;
+                }
+            }
+        }
+        return magics;
+    }
+
+    private static void print(String name, long[] magics) {
+        StringBuilder sb = new StringBuilder("    static final long[] " + name + " = {");
+        for (int square = 0; square < 64; square++) {
+            sb.append(square % 4 == 0 ? "\n            " : " ");
+            sb.append(String.format("0x%016XL,", magics[square]));
+        }
+        System.out.println(sb.append("\n    };"));
+    }
+
+    /**
+     * Small self-contained generator so the magics do not depend on the
+     * JDK's {@code Random} implementation.
+     */
+    private static final class SplitMix64 {
+        private long state;
+
+        SplitMix64(long seed) {
+            this.state = seed;
+        }
+
+        long next() {
+            long z = (state += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package chess.attack;
+
+/**
+ * Magic-bitboard lookup table for one kind of sliding piece.
+ * <p>
+ * For every square the occupancy of the squares that can block the piece is
+ * multiplied by a "magic" constant; the top bits of the product form a
+ * perfect hash into a shared attack array.
+ */
+final class MagicTable {
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long RANK_1 = 0xFFL;
+
+    private final long[] masks = new long[64];
+    private final long[] magics;
+    private final int[] shifts = new int[64];
+    private final int[] offsets = new int[64];
+    private final long[] attacks;
+
+    /**
+     * Fills the table from known-good magics.
+     *
+     * @param directions pairs of (row step, column step) the piece slides along
+     * @param magics     one magic per square, see {@link MagicSearch}
+     * @throws IllegalStateException if a magic maps two different attack sets to one slot
+     */
+    MagicTable(int[][] directions, long[] magics) {
+        this.magics = magics.clone();
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = blockerMask(square, directions);
+            shifts[square] = 64 - Long.bitCount(masks[square]);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(masks[square]);
+        }
+        attacks = new long[size];
+
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            long subset = 0L;
+            do {
+                int index = offsets[square] + (int) ((subset * this.magics[square]) >>> shifts[square]);
+                long reference = slide(square, subset, directions);
+                if (attacks[index] != 0 && attacks[index] != reference) {
+                    throw new IllegalStateException("Bad magic for square " + square);
+                }
+                attacks[index] = reference;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+        }
+    }
+
+    long attacks(int square, long occupied) {
+        int index = (int) (((occupied & masks[square]) * magics[square]) >>> shifts[square]);
+        return attacks[offsets[square] + index];
+    }
+
+    /**
+     * @return number of entries in the shared attack array
+     */
+    int size() {
+        return attacks.length;
+    }
+
+    /**
+     * Squares whose occupancy can change the piece's attacks: every square
+     * along each ray except the last one before the edge of the board.
+     */
+    static long blockerMask(int square, int[][] directions) {
+        long edges = ((RANK_1 | (RANK_1 << 56)) & ~(RANK_1 << (square & ~7)))
+                | ((FILE_A | (FILE_A << 7)) & ~(FILE_A << (square & 7)));
+        return slide(square, 0L, directions) & ~edges;
+    }
+
+    /**
+     * Walks each ray square by square, stopping after the first occupied one.
+     * Only used while building the tables.
+     */
+    static long slide(int square, long occupied, int[][] directions) {
+        long result = 0L;
+        for (int[] direction : directions) {
+            int row = square >>> 3;
+            int column = square & 7;
+            while (true) {
+                row += direction[0];
+                column += direction[1];
+                if (row < 0 || row > 7 || column < 0 || column > 7) {
+                    break;
+                }
+                long bit = 1L << (row * 8 + column);
+                result |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package chess.engine;
+
+import chess.ChessPiece;
+
+/**
+ * Piece values in centipawns, for ordering captures; the evaluation itself is
+ * {@link chess.ChessGame#evaluate()}
+ */
+final class Material {
+
+    // indexed by PieceType.ordinal(): KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] VALUES = {0, 900, 330, 320, 500, 100};
+
+    private Material() {
+    }
+
+    static int value(ChessPiece.PieceType type) {
+        return VALUES[type.ordinal()];
+    }
+}
@@ -0,0 +1,131 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Move;
+import chess.MoveList;
+
+import java.util.Arrays;
+
+/**
+ * Orders moves so that alpha-beta sees the best ones first: the move that was
+ * best last time, then captures by most valuable victim and least valuable
+ * attacker (MVV-LVA), then promotions, then the killer moves that caused a
+ * cutoff at the same ply, then other quiet moves by their history score.
+ * <p>
+ * Moves are scored once into a parallel array and picked one at a time with
+ * {@link #next}, so a cutoff on the first move wastes no time sorting the rest.
+ */
+final class MoveOrdering {
+
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 24;
+    private static final int PROMOTION = CAPTURE - (1 << 20);
+    private static final int FIRST_KILLER = 1 << 19;
+    private static final int SECOND_KILLER = FIRST_KILLER - 1;
+    // quiet moves stay below the killers however large their history grows
+    private static final int HISTORY_LIMIT = 1 << 18;
+
+    private final int[][] killers = new int[Search.MAX_PLY + 1][2];
+    private final int[][] history = new int[2][64 * 64]; // by side, then from * 64 + to
+
+    /**
+     * Forgets killers and history, for a search of an unrelated position
+     */
+    void clear() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[] sideHistory : history) {
+            Arrays.fill(sideHistory, 0);
+        }
+    }
+
+    /**
+     * Fills {@code scores} with an ordering score for each move in {@code moves}
+     *
+     * @param bestMove a move to put first, or {@link Move#NONE}
+     */
+    void score(ChessGame game, MoveList moves, int[] scores, int ply, int bestMove) {
+        ChessBoard board = game.getBoard();
+        int[] sideHistory = history[game.getTeamTurn().ordinal()];
+        int[] plyKillers = killers[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (Move.sameMove(move, bestMove)) {
+                score = HASH_MOVE;
+            } else if (Move.isCapture(move)) {
+                ChessPiece victim = pieceAt(board, Move.to(move));
+                int victimValue = victim == null ? Material.value(ChessPiece.PieceType.PAWN) // en passant
+                        : Material.value(victim.getPieceType());
+                int attackerValue = Material.value(pieceAt(board, Move.from(move)).getPieceType());
+                score = CAPTURE + victimValue * 16 - attackerValue / 16;
+            } else if (Move.isPromotion(move)) {
+                score = PROMOTION + Material.value(Move.promotion(move));
+            } else if (Move.sameMove(move, plyKillers[0])) {
+                score = FIRST_KILLER;
+            } else if (Move.sameMove(move, plyKillers[1])) {
+                score = SECOND_KILLER;
+            } else {
+                score = sideHistory[Move.from(move) * 64 + Move.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Moves the best-scored of the moves from {@code index} on to {@code index}
+     *
+     * @return that move
+     */
+    static int next(MoveList moves, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    /**
+     * Remembers a quiet move that caused a beta cutoff
+     */
+    void recordCutoff(int move, ChessGame.TeamColor side, int ply, int depth) {
+        int[] plyKillers = killers[ply];
+        if (!Move.sameMove(move, plyKillers[0])) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        int[] sideHistory = history[side.ordinal()];
+        int index = Move.from(move) * 64 + Move.to(move);
+        sideHistory[index] += depth * depth;
+        if (sideHistory[index] >= HISTORY_LIMIT) {
+            age();
+        }
+    }
+
+    /**
+     * Halves every history score so recent cutoffs count for more than old ones
+     */
+    void age() {
+        for (int[] sideHistory : history) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] >>= 1;
+            }
+        }
+    }
+
+    private static ChessPiece pieceAt(ChessBoard board, int square) {
+        return board.getPiece(ChessPosition.of(square / 8 + 1, square % 8 + 1));
+    }
+}
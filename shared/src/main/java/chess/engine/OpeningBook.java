@@ -0,0 +1,325 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Book moves for opening positions, read from a file in the Polyglot layout:
+ * 16-byte big-endian entries of position key (8 bytes), move (2), weight (2)
+ * and an unused learning field (4), sorted by key. A position has one entry
+ * per book move.
+ * <p>
+ * The keys are this engine's {@link ChessGame#getPositionKey()}, not
+ * Polyglot's own hash, so books are built from game lines with
+ * {@link Builder} (or {@link #main(String[])}) rather than downloaded.
+ * <p>
+ * The file is memory-mapped, not read onto the heap, so one book is shared by
+ * every game and its pages are loaded by the operating system as they are
+ * used. A lookup is a binary search over the mapping and allocates nothing.
+ * An {@code OpeningBook} may be used by many threads at once.
+ */
+public final class OpeningBook {
+
+    /**
+     * System property holding the path of the book a server loads
+     */
+    public static final String FILE_PROPERTY = "chess.engine.bookFile";
+
+    public static final int ENTRY_SIZE = 16;
+
+    // Polyglot promotion codes 1-4 are knight, bishop, rook, queen
+    private static final ChessPiece.PieceType[] PROMOTIONS = {null, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN};
+
+    private static final ThreadLocal<MoveList> LEGAL_MOVES = ThreadLocal.withInitial(MoveList::new);
+
+    // read with absolute gets only, which leave the buffer's position alone, so threads can share it
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_SIZE;
+    }
+
+    /**
+     * Maps a book file into memory
+     *
+     * @throws IOException if the file cannot be read or is not a whole number of entries
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes % ENTRY_SIZE != 0 || bytes > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            // The mapping stays valid once the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            return new OpeningBook(mapped);
+        }
+    }
+
+    /**
+     * @return the book named by {@link #FILE_PROPERTY}, or null if the property is not set
+     * @throws IOException if the book cannot be read
+     */
+    public static OpeningBook openConfigured() throws IOException {
+        String file = System.getProperty(FILE_PROPERTY);
+        return file == null || file.isBlank() ? null : open(Path.of(file));
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the book's favourite move in the game's current position
+     *
+     * @return the legal move with the highest weight, or {@link Move#NONE} if
+     * the position is not in the book
+     */
+    public int bestMove(ChessGame game) {
+        long key = game.getPositionKey();
+        MoveList legal = legalMoves(game);
+        int best = Move.NONE;
+        int bestWeight = -1;
+        for (int i = firstEntry(key); i < size && key(i) == key; i++) {
+            int move = toLegalMove(bookMove(i), legal);
+            if (move != Move.NONE && weight(i) > bestWeight) {
+                best = move;
+                bestWeight = weight(i);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Picks a book move at random, each in proportion to its weight, so games
+     * against the engine do not all open the same way
+     *
+     * @param random any random value, e.g. from {@link java.util.concurrent.ThreadLocalRandom}
+     * @return a legal book move, or {@link Move#NONE} if the position is not in the book
+     */
+    public int pickMove(ChessGame game, long random) {
+        long key = game.getPositionKey();
+        MoveList legal = legalMoves(game);
+        int first = firstEntry(key);
+        long total = 0;
+        for (int i = first; i < size && key(i) == key; i++) {
+            if (toLegalMove(bookMove(i), legal) != Move.NONE) {
+                total += weight(i);
+            }
+        }
+        if (total == 0) {
+            return bestMove(game); // only zero weights, or nothing at all
+        }
+        long target = Long.remainderUnsigned(random, total);
+        for (int i = first; i < size && key(i) == key; i++) {
+            int move = toLegalMove(bookMove(i), legal);
+            if (move != Move.NONE) {
+                target -= weight(i);
+                if (target < 0) {
+                    return move;
+                }
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * @return the index of the first entry whose key is not below {@code key},
+     * comparing unsigned as the file is sorted
+     */
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long key(int entry) {
+        return entries.getLong(entry * ENTRY_SIZE);
+    }
+
+    private int bookMove(int entry) {
+        return entries.getShort(entry * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    private int weight(int entry) {
+        return entries.getShort(entry * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+    private static MoveList legalMoves(ChessGame game) {
+        MoveList moves = LEGAL_MOVES.get();
+        game.legalMoves(game.getTeamTurn(), moves);
+        return moves;
+    }
+
+    /**
+     * Matches a book move against the legal moves, so the result carries the
+     * generator's flags; a book entry that is not legal here (a key collision
+     * or a corrupt file) is ignored
+     */
+    private static int toLegalMove(int bookMove, MoveList legal) {
+        int from = ((bookMove >>> 9) & 7) << 3 | ((bookMove >>> 6) & 7);
+        int to = ((bookMove >>> 3) & 7) << 3 | (bookMove & 7);
+        ChessPiece.PieceType promotion = PROMOTIONS[Math.min((bookMove >>> 12) & 7, 4)];
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (Move.from(move) != from || Move.promotion(move) != promotion) {
+                continue;
+            }
+            // Polyglot writes castling as the king taking its own rook
+            int target = Move.hasFlag(move, Move.FLAG_CASTLE) ? castlingRookSquare(move) : Move.to(move);
+            if (target == to) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    private static int castlingRookSquare(int move) {
+        return Move.to(move) > Move.from(move) ? Move.from(move) + 3 : Move.from(move) - 4;
+    }
+
+    /**
+     * @return the move in Polyglot's 16-bit form
+     */
+    static int toBookMove(int move) {
+        int to = Move.hasFlag(move, Move.FLAG_CASTLE) ? castlingRookSquare(move) : Move.to(move);
+        int promotion = 0;
+        ChessPiece.PieceType type = Move.promotion(move);
+        for (int code = 1; code < PROMOTIONS.length; code++) {
+            if (PROMOTIONS[code] == type) {
+                promotion = code;
+            }
+        }
+        int from = Move.from(move);
+        return (promotion << 12) | ((from >>> 3) << 9) | ((from & 7) << 6) | ((to >>> 3) << 3) | (to & 7);
+    }
+
+    /**
+     * Collects book moves and writes them out as a sorted book file. Adding
+     * the same move in the same position again raises its weight.
+     */
+    public static final class Builder {
+        private static final int MAX_WEIGHT = 0xFFFF;
+
+        // position key -> book move -> weight, keys in the file's unsigned order
+        private final Map<Long, Map<Integer, Integer>> moves = new TreeMap<>(Long::compareUnsigned);
+
+        /**
+         * Adds a move for the game's current position
+         *
+         * @param move   a legal packed move
+         * @param weight how much to favour the move
+         */
+        public Builder add(ChessGame game, int move, int weight) {
+            moves.computeIfAbsent(game.getPositionKey(), key -> new TreeMap<>())
+                    .merge(toBookMove(move), weight, (a, b) -> Math.min(MAX_WEIGHT, a + b));
+            return this;
+        }
+
+        /**
+         * Adds every move of a game from the starting position
+         *
+         * @param line  moves in coordinate notation, e.g. {@code e2e4 e7e5 g1f3}
+         * @param plies how many of the moves to add; the rest are ignored
+         * @throws IllegalArgumentException if a move is not legal
+         */
+        public Builder addLine(String line, int plies) {
+            ChessGame game = new ChessGame();
+            MoveList legal = new MoveList();
+            String[] tokens = line.trim().split("\\s+");
+            for (int ply = 0; ply < Math.min(plies, tokens.length); ply++) {
+                if (tokens[ply].isEmpty()) {
+                    continue;
+                }
+                game.legalMoves(game.getTeamTurn(), legal);
+                int move = Move.NONE;
+                for (int i = 0; i < legal.size(); i++) {
+                    if (Move.toString(legal.get(i)).equals(tokens[ply])) {
+                        move = legal.get(i);
+                    }
+                }
+                if (move == Move.NONE) {
+                    throw new IllegalArgumentException("Illegal move " + tokens[ply] + " in line: " + line);
+                }
+                add(game, move, 1);
+                game.makeLegalMove(move);
+            }
+            return this;
+        }
+
+        /**
+         * @return the number of entries the book will have
+         */
+        public int size() {
+            return moves.values().stream().mapToInt(Map::size).sum();
+        }
+
+        public void write(Path file) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(size() * ENTRY_SIZE);
+            for (Map.Entry<Long, Map<Integer, Integer>> position : moves.entrySet()) {
+                for (Map.Entry<Integer, Integer> move : position.getValue().entrySet()) {
+                    buffer.putLong(position.getKey());
+                    buffer.putShort((short) (int) move.getKey());
+                    buffer.putShort((short) (int) move.getValue());
+                    buffer.putInt(0);
+                }
+            }
+            buffer.flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a book from a text file with one game per line, in coordinate
+     * notation. Arguments: the text file, the book file to write, and
+     * optionally how many plies of each game to keep (default 16).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBook <lines.txt> <book.bin> [plies]");
+            System.exit(2);
+        }
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        Builder builder = new Builder();
+        List<String> lines = Files.readAllLines(Path.of(args[0]));
+        for (String line : lines) {
+            if (!line.isBlank() && !line.startsWith("#")) {
+                builder.addLine(line, plies);
+            }
+        }
+        builder.write(Path.of(args[1]));
+        System.out.printf("Wrote %,d entries from %,d lines to %s%n", builder.size(), lines.size(), args[1]);
+    }
+}
@@ -0,0 +1,164 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.tablebase.Tablebase;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs several {@link Search}es on the same position at once, all sharing one
+ * {@link TranspositionTable} (the "Lazy SMP" scheme). The threads do not
+ * divide the tree between them; each finds the others' results in the table
+ * and skips work they have already done, and the helpers that start one ply
+ * deeper than the main search fill in results it will need next.
+ * <p>
+ * The searches run on a {@link ForkJoinPool} of their own, never on the
+ * caller's thread, so a server can bound the threads spent on search
+ * separately from the threads serving requests. When the main search
+ * finishes the helpers are stopped, and the deepest completed result wins.
+ * <p>
+ * A {@code ParallelSearch} holds no per-search state and may be used by many
+ * threads at once; concurrent searches share the pool's threads.
+ */
+public final class ParallelSearch {
+
+    /**
+     * System property capping the threads a server spends on search
+     */
+    public static final String THREADS_PROPERTY = "chess.engine.threads";
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+    private final int threads;
+
+    /**
+     * @param pool    pool to run the searches on
+     * @param table   table shared by every search thread
+     * @param threads number of searches to run per position, main search included
+     */
+    public ParallelSearch(ForkJoinPool pool, TranspositionTable table, int threads) {
+        this(pool, table, threads, null);
+    }
+
+    /**
+     * @param pool      pool to run the searches on
+     * @param table     table shared by every search thread
+     * @param threads   number of searches to run per position, main search included
+     * @param tablebase endgame tables for the searches to look positions up in, or null for none
+     */
+    public ParallelSearch(ForkJoinPool pool, TranspositionTable table, int threads, Tablebase tablebase) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A parallel search needs at least one thread");
+        }
+        this.pool = pool;
+        this.table = table;
+        this.tablebase = tablebase;
+        this.threads = threads;
+    }
+
+    /**
+     * @return the thread cap from {@link #THREADS_PROPERTY}, defaulting to the
+     * number of available processors
+     */
+    public static int configuredThreads() {
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        return Math.max(1, threads);
+    }
+
+    /**
+     * Creates a pool that runs at most {@code threads} searches at a time,
+     * with daemon threads named {@code chess-search-N}
+     *
+     * @param threads the most threads the pool may use
+     */
+    public static ForkJoinPool newPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("chess-search-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ForkJoinPool(threads, factory, null, false,
+                0, threads, 1, null, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Searches the game's current position on the pool and waits for the result
+     *
+     * @param game   the game to search; it is not modified
+     * @param limits how deep and how long to search; the time counts from
+     *               this call, however long the threads wait for the pool
+     * @return the deepest result any search thread completed
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return searchAsync(game, limits).join();
+    }
+
+    /**
+     * Starts a search of the game's current position on the pool
+     *
+     * @param game   the game to search; each thread works on its own copy, so
+     *               the game may change once this returns
+     * @param limits how deep and how long to search; the time counts from
+     *               this call, however long the threads wait for the pool
+     * @return the deepest result any search thread completed, with the nodes
+     * of every thread added together
+     */
+    public CompletableFuture<SearchResult> searchAsync(ChessGame game, SearchLimits limits) {
+        long start = System.nanoTime();
+        table.newSearch();
+        Search[] searches = new Search[threads];
+        @SuppressWarnings("unchecked")
+        CompletableFuture<SearchResult>[] results = new CompletableFuture[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table, tablebase);
+        }
+        for (int i = 0; i < threads; i++) {
+            Search search = searches[i];
+            ChessGame copy = game.copy();
+            int firstDepth = 1 + i % 2;
+            boolean main = i == 0;
+            results[i] = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return search.run(copy, limits, firstDepth, start);
+                } finally {
+                    if (main) {
+                        for (Search helper : searches) {
+                            helper.stop();
+                        }
+                    }
+                }
+            }, pool);
+        }
+        return CompletableFuture.allOf(results).thenApply(ignored -> combine(results));
+    }
+
+    private static SearchResult combine(CompletableFuture<SearchResult>[] results) {
+        SearchResult best = results[0].join();
+        long nodes = 0;
+        long elapsedMillis = 0;
+        for (CompletableFuture<SearchResult> future : results) {
+            SearchResult result = future.join();
+            nodes += result.nodes();
+            elapsedMillis = Math.max(elapsedMillis, result.elapsedMillis());
+            if (result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, elapsedMillis);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
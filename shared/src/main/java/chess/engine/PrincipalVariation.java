@@ -0,0 +1,38 @@
+package chess.engine;
+
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One of the lines a {@link Search#searchLines multi-PV search} reports: a
+ * move for the side to move, the replies the search expects, and the score
+ * the line is worth
+ *
+ * @param score centipawns from the side to move's point of view; see
+ *              {@link Search#isMateScore(int)}
+ * @param depth depth of the iteration that found the line
+ * @param moves packed moves (see {@link Move}), starting with the move
+ *              played now; never empty, and not to be modified
+ */
+public record PrincipalVariation(int score, int depth, int[] moves) {
+
+    /**
+     * @return the first move of the line
+     */
+    public int move() {
+        return moves[0];
+    }
+
+    /**
+     * @return the moves in coordinate notation, such as {@code e2e4}
+     */
+    public List<String> moveStrings() {
+        List<String> strings = new ArrayList<>(moves.length);
+        for (int move : moves) {
+            strings.add(Move.toString(move));
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,527 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+import chess.MoveList;
+import chess.tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds a move for the side to move with an iterative deepening alpha-beta
+ * search over {@link ChessGame}'s packed legal moves.
+ * <p>
+ * Each iteration searches one ply deeper than the last and starts with the
+ * previous iteration's best move, so the cutoffs come early and the time
+ * spent on shallow iterations is repaid. Leaves are settled with a
+ * quiescence search over captures, so a move is never judged in the middle of
+ * an exchange. The search stops at the depth or time limit in
+ * {@link SearchLimits}; an iteration cut short by the clock is thrown away
+ * and the last complete one answers.
+ * <p>
+ * Results are kept in a {@link TranspositionTable}, which cuts off positions
+ * reached again through another move order and supplies the best move found
+ * last time to search first.
+ * <p>
+ * With a {@link Tablebase}, endgame positions it holds are not searched:
+ * their result is looked up and scored as the mate, or draw, it is.
+ * <p>
+ * The search plays moves on the game it is given and takes them all back
+ * before returning. A {@code Search} keeps its move lists and ordering tables
+ * between calls so searching allocates nothing; it is not thread safe, so give
+ * each thread its own. The transposition table can be shared.
+ */
+public final class Search {
+
+    /**
+     * Deepest ply the search will reach, quiescence included
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Score of delivering mate now; mate in {@code n} plies scores {@code MATE_SCORE - n}
+     */
+    public static final int MATE_SCORE = 30_000;
+
+    private static final int INFINITY = 32_000;
+    // nodes between clock checks; a power of two
+    private static final int CHECK_INTERVAL = 2048;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] orderScores = new int[MAX_PLY + 1][];
+    private final MoveOrdering ordering = new MoveOrdering();
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+
+    private ChessGame game;
+    private long nodes;
+    private long deadline;
+    private boolean timed;
+    private int rootDepth;
+    private int firstDepth;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+
+    /**
+     * Creates a search with its own transposition table, sized by
+     * {@link TranspositionTable#SIZE_PROPERTY}
+     */
+    public Search() {
+        this(TranspositionTable.withConfiguredSize());
+    }
+
+    /**
+     * @param table transposition table to read and fill, which other searches may share
+     */
+    public Search(TranspositionTable table) {
+        this(table, null);
+    }
+
+    /**
+     * @param table     transposition table to read and fill, which other searches may share
+     * @param tablebase endgame tables to look positions up in, or null for none
+     */
+    public Search(TranspositionTable table, Tablebase tablebase) {
+        this.table = table;
+        this.tablebase = tablebase;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+            orderScores[i] = new int[MoveList.DEFAULT_CAPACITY];
+        }
+    }
+
+    /**
+     * Searches the game's current position for the side to move
+     *
+     * @param game   the game to search; it is restored before this returns
+     * @param limits how deep and how long to search
+     * @return the best move found and its score
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        stopRequested = false;
+        table.newSearch();
+        return run(game, limits, 1, System.nanoTime());
+    }
+
+    /**
+     * Runs the search without resetting the stop request or starting a new
+     * table generation, for a search that is one of several sharing the table
+     *
+     * @param firstDepth depth of the first iteration; helpers that start deeper
+     *                   than the main search spread the threads over more of the tree
+     * @param start      {@link System#nanoTime()} when the search was asked
+     *                   for; the time limit counts from here, so threads that
+     *                   wait for the pool share one deadline
+     */
+    SearchResult run(ChessGame game, SearchLimits limits, int firstDepth, long start) {
+        begin(game, limits, firstDepth, start);
+
+        MoveList rootMoves = moveLists[0];
+        game.legalMoves(game.getTeamTurn(), rootMoves);
+        int[] rootScores = scoresFor(0, rootMoves);
+        if (rootMoves.isEmpty()) {
+            int score = game.isInCheck(game.getTeamTurn()) ? -MATE_SCORE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0, elapsedMillis(start));
+        }
+
+        if (tablebase != null) {
+            int move = tablebase.bestMove(game);
+            if (move != Move.NONE) {
+                int score = tablebaseScore(tablebase.probe(game), 0);
+                return new SearchResult(move, score, 0, 0, elapsedMillis(start));
+            }
+        }
+
+        long rootKey = game.getPositionKey();
+        long entry = table.probe(rootKey);
+        int bestMove = entry != 0 && rootMoves.contains(TranspositionTable.move(entry))
+                ? TranspositionTable.move(entry) : rootMoves.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (rootDepth = this.firstDepth; rootDepth <= limits.maxDepth(); rootDepth++) {
+            ordering.score(game, rootMoves, rootScores, 0, bestMove);
+            int alpha = -INFINITY;
+            int iterationBest = Move.NONE;
+            for (int i = 0; i < rootMoves.size(); i++) {
+                int move = MoveOrdering.next(rootMoves, rootScores, i);
+                game.makeLegalMove(move);
+                int score = -alphaBeta(rootDepth - 1, 1, -INFINITY, -alpha);
+                game.unmakeMove();
+                if (aborted) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = move;
+                }
+            }
+            if (aborted) {
+                break;
+            }
+            bestMove = iterationBest;
+            bestScore = alpha;
+            completedDepth = rootDepth;
+            table.store(rootKey, bestMove, toTable(bestScore, 0), rootDepth, TranspositionTable.EXACT);
+            ordering.age();
+
+            if (isMateScore(bestScore) && MATE_SCORE - Math.abs(bestScore) <= rootDepth) {
+                break; // a shortest mate has been found; deeper iterations cannot change it
+            }
+            if (timed && System.nanoTime() - start > (deadline - start) / 2) {
+                break; // the next iteration would most likely not finish
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, elapsedMillis(start));
+    }
+
+    /**
+     * Searches the game's current position for the side to move and reports
+     * its best few moves, each with the line of play the search expects to
+     * follow it ("multi-PV"). Each iteration searches the best move first,
+     * then the best of the moves left, and so on, so the lines are scored as
+     * exactly as the single best move and cost roughly {@code lines} times as
+     * much to find.
+     *
+     * @param game   the game to search; it is restored before this returns
+     * @param limits how deep and how long to search
+     * @param lines  how many of the best moves to report
+     * @return up to {@code lines} variations, best first, from the deepest
+     * iteration that completed; empty if the side to move has no moves
+     */
+    public List<PrincipalVariation> searchLines(ChessGame game, SearchLimits limits, int lines) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("A search reports at least one line");
+        }
+        stopRequested = false;
+        table.newSearch();
+        long start = System.nanoTime();
+        begin(game, limits, 1, start);
+
+        MoveList rootMoves = moveLists[0];
+        game.legalMoves(game.getTeamTurn(), rootMoves);
+        if (rootMoves.isEmpty()) {
+            return List.of();
+        }
+        int[] rootScores = scoresFor(0, rootMoves);
+        int count = Math.min(lines, rootMoves.size());
+        int[] lineMoves = new int[count];
+        int[] lineScores = new int[count];
+        List<PrincipalVariation> completed = List.of();
+        for (rootDepth = firstDepth; rootDepth <= limits.maxDepth(); rootDepth++) {
+            for (int line = 0; line < count; line++) {
+                ordering.score(game, rootMoves, rootScores, 0, lineMoves[line]);
+                int alpha = -INFINITY;
+                int lineBest = Move.NONE;
+                for (int i = 0; i < rootMoves.size(); i++) {
+                    int move = MoveOrdering.next(rootMoves, rootScores, i);
+                    if (isEarlierLine(move, lineMoves, line)) {
+                        continue;
+                    }
+                    game.makeLegalMove(move);
+                    int score = -alphaBeta(rootDepth - 1, 1, -INFINITY, -alpha);
+                    game.unmakeMove();
+                    if (aborted) {
+                        break;
+                    }
+                    if (score > alpha) {
+                        alpha = score;
+                        lineBest = move;
+                    }
+                }
+                if (aborted) {
+                    break;
+                }
+                lineMoves[line] = lineBest;
+                lineScores[line] = alpha;
+            }
+            if (aborted) {
+                break;
+            }
+            table.store(game.getPositionKey(), lineMoves[0], toTable(lineScores[0], 0), rootDepth,
+                    TranspositionTable.EXACT);
+            ordering.age();
+            List<PrincipalVariation> variations = new ArrayList<>(count);
+            for (int line = 0; line < count; line++) {
+                variations.add(new PrincipalVariation(lineScores[line], rootDepth,
+                        principalVariation(lineMoves[line], rootDepth)));
+            }
+            completed = variations;
+
+            if (isMateScore(lineScores[0]) && MATE_SCORE - Math.abs(lineScores[0]) <= rootDepth) {
+                break;
+            }
+            if (timed && System.nanoTime() - start > (deadline - start) / 2) {
+                break;
+            }
+        }
+        return completed;
+    }
+
+    private static boolean isEarlierLine(int move, int[] lineMoves, int line) {
+        for (int i = 0; i < line; i++) {
+            if (lineMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Follows the table's best moves from the position after {@code first},
+     * which is how the rest of the line is recovered without tracking it
+     * during the search. The line ends early where an entry has been
+     * overwritten or holds no move.
+     *
+     * @return the moves of the line, {@code first} included, at most {@code length} of them
+     */
+    private int[] principalVariation(int first, int length) {
+        int[] line = new int[length];
+        line[0] = first;
+        game.makeLegalMove(first);
+        int played = 1;
+        while (played < length) {
+            long entry = table.probe(game.getPositionKey());
+            int move = entry == 0 ? Move.NONE : TranspositionTable.move(entry);
+            MoveList moves = moveLists[played];
+            game.legalMoves(game.getTeamTurn(), moves);
+            if (move == Move.NONE || !moves.contains(move)) {
+                break;
+            }
+            game.makeLegalMove(move);
+            line[played++] = move;
+        }
+        for (int i = 0; i < played; i++) {
+            game.unmakeMove();
+        }
+        return Arrays.copyOf(line, played);
+    }
+
+    private void begin(ChessGame game, SearchLimits limits, int firstDepth, long start) {
+        this.game = game;
+        nodes = 0;
+        timed = limits.hasDeadline();
+        deadline = start + limits.timeMillis() * 1_000_000;
+        aborted = false;
+        this.firstDepth = Math.min(firstDepth, limits.maxDepth());
+        ordering.clear();
+    }
+
+    /**
+     * Asks a running search, on another thread, to stop as soon as it can. It
+     * still returns its best move so far.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * @return the transposition table this search reads and fills
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return true if {@code score} means one side can force mate
+     */
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) > MATE_SCORE - MAX_PLY;
+    }
+
+    private int alphaBeta(int depth, int ply, int alpha, int beta) {
+        if (game.getHalfmoveClock() >= ChessGame.FIFTY_MOVE_LIMIT || game.getRepetitionCount() >= 2) {
+            return 0; // one repetition is enough: whatever worked before will work again
+        }
+
+        if (tablebase != null && game.getBoard().getPieceCount() <= tablebase.getMaxPieces()) {
+            int result = tablebase.probe(game);
+            if (result != Tablebase.UNKNOWN && result != Tablebase.ILLEGAL) {
+                return tablebaseScore(result, ply);
+            }
+        }
+
+        ChessGame.TeamColor side = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(side);
+        if (inCheck) {
+            depth++; // look past checks, which are forcing and rarely waste the extra ply
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkTime();
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return game.evaluate();
+        }
+
+        long key = game.getPositionKey();
+        long entry = table.probe(key);
+        int tableMove = Move.NONE;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        game.legalMoves(side, moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE_SCORE + ply : 0;
+        }
+        int[] scores = scoresFor(ply, moves);
+        ordering.score(game, moves, scores, ply, tableMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = MoveOrdering.next(moves, scores, i);
+            game.makeLegalMove(move);
+            int score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                            ordering.recordCutoff(move, side, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Scores a tablebase result as the mate it promises, counted from the root
+     * like any other mate score
+     */
+    private static int tablebaseScore(int result, int ply) {
+        if (!Tablebase.isWin(result) && !Tablebase.isLoss(result)) {
+            return 0;
+        }
+        int mateScore = MATE_SCORE - Math.min(ply + Tablebase.plies(result), MAX_PLY - 1);
+        return Tablebase.isWin(result) ? mateScore : -mateScore;
+    }
+
+    /**
+     * Mate scores count plies from the root; stored entries count them from
+     * the entry's own position, so they stay right when it is reached at
+     * another ply
+     */
+    private static int toTable(int score, int ply) {
+        if (isMateScore(score)) {
+            return score > 0 ? score + ply : score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (isMateScore(score)) {
+            return score > 0 ? score - ply : score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Searches captures and promotions only until the position is quiet, so
+     * the static evaluation is never taken halfway through an exchange. The
+     * side to move may stand pat instead of capturing, unless it is in check.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkTime();
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return game.evaluate();
+        }
+
+        ChessGame.TeamColor side = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(side);
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = game.evaluate();
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        MoveList moves = moveLists[ply];
+        game.legalMoves(side, moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE_SCORE + ply : 0;
+        }
+        int[] scores = scoresFor(ply, moves);
+        ordering.score(game, moves, scores, ply, Move.NONE);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = MoveOrdering.next(moves, scores, i);
+            if (!inCheck && !Move.isCapture(move) && !Move.isPromotion(move)) {
+                continue;
+            }
+            game.makeLegalMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void checkTime() {
+        // the first iteration always finishes, so there is a move to return
+        if (rootDepth > firstDepth && (stopRequested || (timed && System.nanoTime() >= deadline))) {
+            aborted = true;
+        }
+    }
+
+    private int[] scoresFor(int ply, MoveList moves) {
+        if (orderScores[ply].length < moves.size()) {
+            // Only hand-built boards with extra pieces have this many moves
+            orderScores[ply] = new int[moves.size()];
+        }
+        return orderScores[ply];
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
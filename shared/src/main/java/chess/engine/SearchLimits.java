@@ -0,0 +1,39 @@
+package chess.engine;
+
+/**
+ * How long a {@link Search} may run: a wall-clock budget for the move, a
+ * depth cap, or both. The search stops at whichever comes first, but always
+ * completes depth 1 so it has a move to return.
+ *
+ * @param maxDepth   deepest iteration to search, in plies
+ * @param timeMillis budget for the whole move, or 0 for no time limit
+ */
+public record SearchLimits(int maxDepth, long timeMillis) {
+
+    public SearchLimits {
+        if (maxDepth < 1 || maxDepth > Search.MAX_PLY) {
+            throw new IllegalArgumentException("Search depth must be between 1 and " + Search.MAX_PLY);
+        }
+        if (timeMillis < 0) {
+            throw new IllegalArgumentException("Search time budget cannot be negative");
+        }
+    }
+
+    /**
+     * @return limits that stop after {@code timeMillis}, however deep the search got
+     */
+    public static SearchLimits ofTime(long timeMillis) {
+        return new SearchLimits(Search.MAX_PLY, timeMillis);
+    }
+
+    /**
+     * @return limits that search to exactly {@code depth} with no time limit
+     */
+    public static SearchLimits ofDepth(int depth) {
+        return new SearchLimits(depth, 0);
+    }
+
+    boolean hasDeadline() {
+        return timeMillis > 0;
+    }
+}
@@ -0,0 +1,33 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.Move;
+
+/**
+ * What a {@link Search} found: its best move, the score of that move and how
+ * much work went into it
+ *
+ * @param bestMove      packed best move (see {@link Move}), or {@link Move#NONE}
+ *                      if the side to move has no legal moves
+ * @param score         centipawns from the side to move's point of view; see
+ *                      {@link Search#isMateScore(int)}
+ * @param depth         deepest iteration that completed
+ * @param nodes         positions visited, including quiescence search
+ * @param elapsedMillis wall-clock time the search took
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long elapsedMillis) {
+
+    /**
+     * @return the best move as a {@link ChessMove}, or null if there is none
+     */
+    public ChessMove bestChessMove() {
+        return bestMove == Move.NONE ? null : Move.toChessMove(bestMove);
+    }
+
+    /**
+     * @return positions visited per second of search
+     */
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(1, elapsedMillis);
+    }
+}
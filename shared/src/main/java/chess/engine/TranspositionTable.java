@@ -0,0 +1,243 @@
+package chess.engine;
+
+import chess.Move;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size table of search results keyed by position, so a position
+ * reached again by a different move order is not searched again.
+ * <p>
+ * The table is one {@code long[]}, split into buckets of {@link #BUCKET_SIZE}
+ * entries that fill a 64-byte cache line. An entry is two longs: the data
+ * (move, score, depth, bound and the search generation that wrote it) and
+ * the position key XORed with that data. A reader accepts an entry only if
+ * XORing the two gives back its key, so when threads race on an entry a
+ * half-written one fails the check and reads as a miss. No locks are needed
+ * to share the table between search threads.
+ * <p>
+ * When a bucket is full the new result replaces the entry with the least
+ * depth, counting entries left over from earlier searches as shallower than
+ * they are.
+ */
+public final class TranspositionTable {
+
+    /**
+     * System property holding the table size, in megabytes, for searches that
+     * do not pass their own table
+     */
+    public static final String SIZE_PROPERTY = "chess.engine.hashMegabytes";
+    public static final int DEFAULT_MEGABYTES = 16;
+    public static final int MAX_MEGABYTES = 8192;
+
+    public static final int BUCKET_SIZE = 4;
+
+    /** The score is exact */
+    public static final int EXACT = 1;
+    /** The score is a lower bound: the search failed high */
+    public static final int LOWER = 2;
+    /** The score is an upper bound: the search failed low */
+    public static final int UPPER = 3;
+
+    // data layout, from the low bits up: move (19 bits), score (16 bits, signed),
+    // depth (8 bits), bound (2 bits, never 0 in a stored entry), generation (8 bits)
+    private static final int SCORE_SHIFT = 19;
+    private static final int DEPTH_SHIFT = 35;
+    private static final int BOUND_SHIFT = 43;
+    private static final int GENERATION_SHIFT = 45;
+    private static final long MOVE_MASK = (1L << SCORE_SHIFT) - 1;
+
+    // entries older by one generation count this many plies shallower when picking one to replace
+    private static final int AGE_PENALTY = 8;
+    private static final int FILL_SAMPLE = 1000;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param megabytes memory to use; rounded down to a power of two
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("Table size must be between 1 and " + MAX_MEGABYTES + " MB");
+        }
+        long bytes = Long.highestOneBit((long) megabytes) << 20;
+        int buckets = (int) (bytes / (BUCKET_SIZE * 2 * Long.BYTES));
+        table = new long[buckets * BUCKET_SIZE * 2];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return a table sized by {@link #SIZE_PROPERTY}, or {@link #DEFAULT_MEGABYTES} if it is not set
+     */
+    public static TranspositionTable withConfiguredSize() {
+        return new TranspositionTable(Integer.getInteger(SIZE_PROPERTY, DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key the position key, see {@link chess.ChessGame#getPositionKey()}
+     * @return the entry's data, to be read with {@link #move}, {@link #score},
+     * {@link #depth} and {@link #bound}, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        probes.increment();
+        int base = bucketIndex(key);
+        for (int i = base; i < base + BUCKET_SIZE * 2; i += 2) {
+            long data = table[i + 1];
+            if (data != 0 && (table[i] ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result for a position
+     *
+     * @param key   the position key
+     * @param move  best move found, or {@link Move#NONE} to keep any move already stored
+     * @param score score from the side to move's point of view, between -32768 and 32767
+     * @param depth depth searched, between 0 and 255
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int base = bucketIndex(key);
+        int current = generation;
+        int target = base;
+        int worst = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_SIZE * 2; i += 2) {
+            long data = table[i + 1];
+            if (data == 0) {
+                target = i;
+                break;
+            }
+            if ((table[i] ^ data) == key) {
+                // Same position: keep a deeper result from this search unless the new one is exact
+                if (depth < depth(data) && bound != EXACT && generation(data) == current) {
+                    return;
+                }
+                if (move == Move.NONE) {
+                    move = move(data);
+                }
+                target = i;
+                break;
+            }
+            int value = depth(data) - AGE_PENALTY * ((current - generation(data)) & 0xFF);
+            if (value < worst) {
+                worst = value;
+                target = i;
+            }
+        }
+
+        long data = (move & MOVE_MASK)
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) Math.min(depth, 255) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) current << GENERATION_SHIFT);
+        table[target + 1] = data;
+        table[target] = key ^ data;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier searches are
+     * replaced first
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table and resets the statistics
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+        resetStatistics();
+    }
+
+    public static int move(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> GENERATION_SHIFT) & 0xFF);
+    }
+
+    private int bucketIndex(long key) {
+        // the low bits pick the bucket; the whole key is checked on a match
+        return ((int) key & bucketMask) * BUCKET_SIZE * 2;
+    }
+
+    /**
+     * @return the number of entries the table holds
+     */
+    public int getCapacity() {
+        return table.length / 2;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the fraction of probes that found their position, or 0 before any probe
+     */
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0.0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * Estimates how full the table is from a sample of its first entries,
+     * counting only entries written by the current search
+     *
+     * @return used entries per thousand
+     */
+    public int getFillPermille() {
+        int sample = Math.min(FILL_SAMPLE, getCapacity());
+        int current = generation;
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * 2 + 1];
+            if (data != 0 && generation(data) == current) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public void resetStatistics() {
+        probes.reset();
+        hits.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable[%d entries, %d%% hits, %d permille full]",
+                getCapacity(), Math.round(getHitRate() * 100), getFillPermille());
+    }
+}
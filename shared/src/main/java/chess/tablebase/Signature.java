@@ -0,0 +1,354 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The material of an endgame, such as {@code KQvK} or {@code KRPvKR}, and
+ * the layout of its table: which entry holds which position.
+ * <p>
+ * The side named first is the stronger one and plays white in the table;
+ * positions where black has that material are looked up with the colors
+ * swapped (see {@link Tablebase#probe}). Pieces are listed king first, then
+ * queens, rooks, bishops, knights and pawns.
+ * <p>
+ * An entry is indexed by the side to move and the square of every piece, in
+ * signature order, 6 bits each. Castling never matters in these endings, so
+ * the board can be mirrored left to right: the white king is always kept on
+ * files a to d and takes only 5 bits. Like pieces, such as two rooks of one
+ * color, are interchangeable, so they are stored in ascending square order,
+ * after mirroring; entries listing them in any other order are never read.
+ * A table has
+ * {@code 2 * 32 * 64^(pieces - 1)} entries; those that are not legal
+ * positions (two pieces on a square, touching kings, pawns on the last row,
+ * the side not to move in check) are never read.
+ */
+public final class Signature {
+
+    private static final String ORDER = "KQRBNP";
+    private static final ChessPiece.PieceType[] TYPES = {ChessPiece.PieceType.KING, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.PAWN};
+    private static final int[] VALUES = {0, 9, 5, 3, 3, 1};
+
+    private final String name;
+    private final ChessPiece.PieceType[] types;
+    private final ChessGame.TeamColor[] colors;
+    // whether each piece is the same color and type as the one before it
+    private final boolean[] likePrevious;
+    private final int whiteCount;
+    private final long materialKey;
+    private final long mirroredMaterialKey;
+
+    private Signature(String white, String black) {
+        this.name = white + "v" + black;
+        int count = white.length() + black.length();
+        this.types = new ChessPiece.PieceType[count];
+        this.colors = new ChessGame.TeamColor[count];
+        this.whiteCount = white.length();
+        long key = 0;
+        long mirroredKey = 0;
+        for (int i = 0; i < count; i++) {
+            boolean isWhite = i < whiteCount;
+            char letter = isWhite ? white.charAt(i) : black.charAt(i - whiteCount);
+            types[i] = TYPES[ORDER.indexOf(letter)];
+            colors[i] = isWhite ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            key += 1L << materialShift(colors[i], types[i]);
+            mirroredKey += 1L << materialShift(isWhite ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE, types[i]);
+        }
+        this.materialKey = key;
+        this.mirroredMaterialKey = mirroredKey;
+        this.likePrevious = new boolean[count];
+        for (int i = 1; i < count; i++) {
+            likePrevious[i] = types[i] == types[i - 1] && colors[i] == colors[i - 1];
+        }
+    }
+
+    /**
+     * Reads a signature such as {@code KQvK}. The sides may be given in either
+     * order and their pieces in any order; the result is always the canonical
+     * form.
+     *
+     * @throws IllegalArgumentException if the name is malformed, a side does
+     *                                  not have exactly one king, or there are
+     *                                  more than {@link Tablebase#MAX_PIECES} pieces
+     */
+    public static Signature parse(String name) {
+        String[] sides = name.toUpperCase().split("V");
+        if (sides.length != 2) {
+            throw new IllegalArgumentException("A signature looks like KQvK: " + name);
+        }
+        String white = sortPieces(sides[0], name);
+        String black = sortPieces(sides[1], name);
+        if (white.length() + black.length() > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Tables have at most " + Tablebase.MAX_PIECES + " pieces: " + name);
+        }
+        return isStronger(white, black) ? new Signature(white, black) : new Signature(black, white);
+    }
+
+    private static String sortPieces(String side, String name) {
+        int kings = 0;
+        StringBuilder sorted = new StringBuilder();
+        for (int order = 0; order < ORDER.length(); order++) {
+            for (char letter : side.toCharArray()) {
+                if (ORDER.indexOf(letter) < 0) {
+                    throw new IllegalArgumentException("Unknown piece '" + letter + "': " + name);
+                }
+                if (letter == ORDER.charAt(order)) {
+                    sorted.append(letter);
+                    kings += order == 0 ? 1 : 0;
+                }
+            }
+        }
+        if (kings != 1) {
+            throw new IllegalArgumentException("Each side needs exactly one king: " + name);
+        }
+        return sorted.toString();
+    }
+
+    /**
+     * @return true if {@code first} should be the white side: more material,
+     * or as much and the better pieces
+     */
+    private static boolean isStronger(String first, String second) {
+        int difference = value(first) - value(second);
+        if (difference != 0) {
+            return difference > 0;
+        }
+        for (int i = 0; i < Math.min(first.length(), second.length()); i++) {
+            int compare = ORDER.indexOf(second.charAt(i)) - ORDER.indexOf(first.charAt(i));
+            if (compare != 0) {
+                return compare > 0;
+            }
+        }
+        return first.length() >= second.length();
+    }
+
+    private static int value(String side) {
+        int total = 0;
+        for (char letter : side.toCharArray()) {
+            total += VALUES[ORDER.indexOf(letter)];
+        }
+        return total;
+    }
+
+    /**
+     * Bit position of a piece's count in a material key; four bits per color and type
+     */
+    static int materialShift(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return (color.ordinal() * 6 + type.ordinal()) * 4;
+    }
+
+    /**
+     * @return the material of this table with the colors swapped, as a key
+     */
+    long mirroredMaterialKey() {
+        return mirroredMaterialKey;
+    }
+
+    /**
+     * Counts of each color and type packed four bits apiece, as
+     * {@link Tablebase} computes them from a board
+     */
+    long materialKey() {
+        return materialKey;
+    }
+
+    /**
+     * Gets the tables a position in this one can move into: those left after a
+     * capture, after a promotion, or after a promotion that captures. Tables
+     * with nothing but kings are left out, since they are always drawn.
+     *
+     * @return canonical signatures, without duplicates
+     */
+    public List<Signature> successors() {
+        String white = name.substring(0, whiteCount);
+        String black = name.substring(whiteCount + 1);
+        Set<String> names = new LinkedHashSet<>();
+        for (String captured : withOneRemoved(black)) {
+            names.add(white + "v" + captured);
+        }
+        for (String captured : withOneRemoved(white)) {
+            names.add(captured + "v" + black);
+        }
+        for (String promoted : promotions(white)) {
+            names.add(promoted + "v" + black);
+            for (String captured : withOneRemoved(black)) {
+                names.add(promoted + "v" + captured);
+            }
+        }
+        for (String promoted : promotions(black)) {
+            names.add(white + "v" + promoted);
+            for (String captured : withOneRemoved(white)) {
+                names.add(captured + "v" + promoted);
+            }
+        }
+        List<Signature> successors = new ArrayList<>();
+        Set<String> seen = new LinkedHashSet<>();
+        for (String successor : names) {
+            if (!successor.equals("KvK")) {
+                Signature signature = parse(successor);
+                if (seen.add(signature.name())) {
+                    successors.add(signature);
+                }
+            }
+        }
+        return successors;
+    }
+
+    private static List<String> withOneRemoved(String side) {
+        List<String> result = new ArrayList<>();
+        for (int i = 1; i < side.length(); i++) {
+            result.add(side.substring(0, i) + side.substring(i + 1));
+        }
+        return result;
+    }
+
+    private static List<String> promotions(String side) {
+        List<String> result = new ArrayList<>();
+        int pawn = side.indexOf('P');
+        if (pawn >= 0) {
+            for (char piece : "QRBN".toCharArray()) {
+                result.add(side.substring(0, pawn) + piece + side.substring(pawn + 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the table's entry count
+     */
+    public int size() {
+        return 2 * 32 << (6 * (types.length - 1));
+    }
+
+    /**
+     * Finds the entry of a position
+     *
+     * @param squares     square of each piece, in signature order, with the
+     *                    table's white pieces first; like pieces may be in
+     *                    any order. Overwritten with the squares as stored:
+     *                    mirrored, and like pieces in ascending order.
+     * @param blackToMove whether the table's black side is to move
+     * @return the entry index
+     */
+    public int index(int[] squares, boolean blackToMove) {
+        // Mirror left to right so the white king is on files a to d
+        int flip = (squares[0] & 7) >= 4 ? 7 : 0;
+        for (int i = 0; i < types.length; i++) {
+            squares[i] ^= flip;
+            // Mirroring can reverse like pieces, so put them back in order
+            for (int j = i; j > 0 && likePrevious[j] && squares[j - 1] > squares[j]; j--) {
+                int square = squares[j];
+                squares[j] = squares[j - 1];
+                squares[j - 1] = square;
+            }
+        }
+        int index = (squares[0] >>> 3) * 4 + (squares[0] & 7);
+        for (int i = 1; i < types.length; i++) {
+            index = index * 64 + squares[i];
+        }
+        return index * 2 + (blackToMove ? 1 : 0);
+    }
+
+    /**
+     * Finds the entry of a position on a board that has this table's material
+     *
+     * @param toMove  the side to move on the board
+     * @param swapped whether the board's black pieces are the table's white
+     *                ones, in which case the board is read upside down
+     * @param squares scratch space for at least {@link #pieceCount()} squares
+     * @return the entry index
+     */
+    public int index(ChessBoard board, ChessGame.TeamColor toMove, boolean swapped, int[] squares) {
+        int flip = swapped ? 56 : 0;
+        int piece = 0;
+        while (piece < types.length) {
+            ChessGame.TeamColor color = colors[piece];
+            if (swapped) {
+                color = color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            }
+            // Pieces of one type sit next to each other in the signature
+            long mask = board.getPieces(color, types[piece]);
+            while (mask != 0) {
+                squares[piece++] = Long.numberOfTrailingZeros(mask) ^ flip;
+                mask &= mask - 1;
+            }
+        }
+        return index(squares, (toMove == ChessGame.TeamColor.BLACK) != swapped);
+    }
+
+    /**
+     * Recovers the piece squares of an entry, the reverse of {@link #index}
+     *
+     * @param index   the entry index
+     * @param squares receives the square of each piece, in signature order
+     */
+    public void squares(int index, int[] squares) {
+        int rest = index >>> 1;
+        for (int i = types.length - 1; i >= 1; i--) {
+            squares[i] = rest & 63;
+            rest >>>= 6;
+        }
+        squares[0] = (rest >>> 2) * 8 + (rest & 3);
+    }
+
+    /**
+     * @return true if the entry is for positions with the table's black side to move
+     */
+    public static boolean isBlackToMove(int index) {
+        return (index & 1) != 0;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the name of the file holding this table
+     */
+    public String fileName() {
+        return name + Tablebase.FILE_SUFFIX;
+    }
+
+    public int pieceCount() {
+        return types.length;
+    }
+
+    /**
+     * @return the number of pieces on the table's white side, king included;
+     * the rest are black
+     */
+    public int whiteCount() {
+        return whiteCount;
+    }
+
+    public ChessPiece.PieceType type(int piece) {
+        return types[piece];
+    }
+
+    public ChessGame.TeamColor color(int piece) {
+        return colors[piece];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Signature other && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
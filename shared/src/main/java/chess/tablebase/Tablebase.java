@@ -0,0 +1,255 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Looks up endgame positions in precomputed tables, which give the result
+ * with best play and how many plies it takes to mate.
+ * <p>
+ * Each table is a file named after its {@link Signature} ({@code KQvK.tb}),
+ * written by the {@code tablebase} module's generator: a
+ * {@value #HEADER_SIZE}-byte header (magic number, piece count, entry count)
+ * followed by one byte per entry, laid out as {@link Signature#index}
+ * describes. A byte is, for the side to move, {@link #DRAW}, a win in
+ * {@code 1} to {@code 127} plies, a loss in {@code byte - 128} plies, or
+ * {@link #ILLEGAL}.
+ * <p>
+ * The files are memory-mapped, so they stay off the heap, are shared by
+ * every game, and only the pages probed are read from disk. A probe
+ * allocates nothing. A {@code Tablebase} may be used by many threads at once.
+ */
+public final class Tablebase {
+
+    /**
+     * System property holding the directory a server loads tables from
+     */
+    public static final String DIRECTORY_PROPERTY = "chess.engine.tablebaseDirectory";
+
+    public static final int MAX_PIECES = 5;
+    public static final String FILE_SUFFIX = ".tb";
+    public static final int MAGIC = 0x43544231; // "CTB1"
+    public static final int HEADER_SIZE = 16;
+
+    /** The position is not in any loaded table */
+    public static final int UNKNOWN = -1;
+    /** Neither side can force mate */
+    public static final int DRAW = 0;
+    /** Not a legal position; never the result of probing a real game */
+    public static final int ILLEGAL = 255;
+
+    private static final int LOSS = 128;
+    private static final int MAX_WIN_PLIES = 127;
+    private static final int MAX_LOSS_PLIES = 126;
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private static final ThreadLocal<int[]> SQUARES = ThreadLocal.withInitial(() -> new int[MAX_PIECES]);
+    private static final ThreadLocal<MoveList> MOVES = ThreadLocal.withInitial(MoveList::new);
+
+    // read with absolute gets only, so threads can share them
+    private final Signature[] signatures;
+    private final ByteBuffer[] tables;
+    private final int maxPieces;
+
+    private Tablebase(List<Signature> signatures, List<ByteBuffer> tables) {
+        this.signatures = signatures.toArray(new Signature[0]);
+        this.tables = tables.toArray(new ByteBuffer[0]);
+        int most = 0;
+        for (Signature signature : signatures) {
+            most = Math.max(most, signature.pieceCount());
+        }
+        this.maxPieces = most;
+    }
+
+    /**
+     * Maps every table in a directory
+     *
+     * @throws IOException if a table cannot be read or its header does not match its name
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        List<Signature> signatures = new ArrayList<>();
+        List<ByteBuffer> tables = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Signature signature = Signature.parse(name.substring(0, name.length() - FILE_SUFFIX.length()));
+                signatures.add(signature);
+                tables.add(map(file, signature));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a table: " + e.getMessage(), e);
+        }
+        return new Tablebase(signatures, tables);
+    }
+
+    /**
+     * @return the tables in {@link #DIRECTORY_PROPERTY}, or null if the property is not set
+     * @throws IOException if the tables cannot be read
+     */
+    public static Tablebase openConfigured() throws IOException {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        return directory == null || directory.isBlank() ? null : open(Path.of(directory));
+    }
+
+    private static ByteBuffer map(Path file, Signature signature) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() != HEADER_SIZE + (long) signature.size() || table.getInt(0) != MAGIC
+                    || table.getInt(4) != signature.pieceCount() || table.getLong(8) != signature.size()) {
+                throw new IOException("Table does not match its name: " + file);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Looks up the game's current position
+     *
+     * @return the result for the side to move, to be read with {@link #isWin},
+     * {@link #isLoss} and {@link #plies}; {@link #DRAW}; or {@link #UNKNOWN}
+     * if no table holds the position, or it has castling or en passant rights,
+     * which the tables leave out
+     */
+    public int probe(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int pieceCount = board.getPieceCount();
+        if (pieceCount == 2) {
+            return DRAW; // bare kings
+        }
+        if (pieceCount > maxPieces || board.hasCastlingRights() || board.hasEnPassantSquare()) {
+            return UNKNOWN;
+        }
+
+        long material = 0;
+        for (ChessGame.TeamColor color : COLORS) {
+            for (ChessPiece.PieceType type : TYPES) {
+                long count = Long.bitCount(board.getPieces(color, type));
+                material += count << Signature.materialShift(color, type);
+            }
+        }
+        for (int i = 0; i < signatures.length; i++) {
+            Signature signature = signatures[i];
+            if (signature.materialKey() == material) {
+                return read(i, board, game.getTeamTurn(), false);
+            }
+            if (signature.mirroredMaterialKey() == material) {
+                return read(i, board, game.getTeamTurn(), true);
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @param swapped the board's black pieces are the table's white ones, see
+     *                {@link Signature#index(ChessBoard, ChessGame.TeamColor, boolean, int[])}
+     */
+    private int read(int table, ChessBoard board, ChessGame.TeamColor toMove, boolean swapped) {
+        int index = signatures[table].index(board, toMove, swapped, SQUARES.get());
+        return tables[table].get(HEADER_SIZE + index) & 0xFF;
+    }
+
+    /**
+     * Finds the best move in a tablebase position: the fastest mate when
+     * winning, any drawing move when not, and the slowest loss otherwise
+     *
+     * @return the move, or {@link Move#NONE} if the position is not in the
+     * tables or the side to move has no moves
+     */
+    public int bestMove(ChessGame game) {
+        int result = probe(game);
+        if (result == UNKNOWN || result == ILLEGAL) {
+            return Move.NONE;
+        }
+        MoveList moves = MOVES.get();
+        game.legalMoves(game.getTeamTurn(), moves);
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            game.makeLegalMove(move);
+            int reply = probe(game);
+            game.unmakeMove();
+            if (reply == UNKNOWN || reply == ILLEGAL) {
+                continue;
+            }
+            // The opponent's loss is our win; prefer short wins, then draws, then long losses
+            int rank = isLoss(reply) ? 1_000 - plies(reply) : isWin(reply) ? -1_000 + plies(reply) : 0;
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the largest piece count of any loaded table, 0 if there are none
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return the number of tables loaded
+     */
+    public int getTableCount() {
+        return signatures.length;
+    }
+
+    /**
+     * @return true if a table for {@code signature} is loaded
+     */
+    public boolean contains(Signature signature) {
+        for (Signature loaded : signatures) {
+            if (loaded.equals(signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isWin(int result) {
+        return result > DRAW && result < LOSS;
+    }
+
+    public static boolean isLoss(int result) {
+        return result >= LOSS && result < ILLEGAL;
+    }
+
+    /**
+     * @return plies until mate, for a win or a loss
+     */
+    public static int plies(int result) {
+        return isLoss(result) ? result - LOSS : result;
+    }
+
+    /**
+     * @return the entry for a win in {@code plies}; longer wins are stored as the longest
+     */
+    public static int win(int plies) {
+        return Math.min(plies, MAX_WIN_PLIES);
+    }
+
+    /**
+     * @return the entry for a loss in {@code plies}, 0 meaning checkmated now
+     */
+    public static int loss(int plies) {
+        return LOSS + Math.min(plies, MAX_LOSS_PLIES);
+    }
+}
@@ -0,0 +1,22 @@
+package model;
+
+/**
+ * The engine's verdict on one move of a finished game. Scores are in
+ * centipawns for the side that moved.
+ *
+ * @param ply       index of the move in the game, 0 for white's first
+ * @param move      the move played, e.g. {@code e2e4}
+ * @param score     the position after the move played
+ * @param bestMove  the engine's choice in the position
+ * @param bestScore the position after the engine's choice
+ * @param blunder   whether the move played gave away much more than the best one
+ */
+public record MoveAnalysisData(
+        int gameID,
+        int ply,
+        String move,
+        int score,
+        String bestMove,
+        int bestScore,
+        boolean blunder
+) {}
@@ -5,10 +5,14 @@ import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessBoard;
 import chess.ChessPosition;
+import chess.tablebase.Tablebase;
 import websocket.dto.GameStateDTO;
+import websocket.dto.LegalMovesDTO;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -16,6 +20,17 @@ import chess.InvalidMoveException;
 
 
 public class GameState {
+  public static final String CACHE_SIZE_PROPERTY = "chess.legalMoveCache.size";
+
+  /** Name shown for the side the server's engine plays */
+  public static final String ENGINE_NAME = "Computer";
+  // Stands in for the engine's auth token when it wins
+  private static final String ENGINE_TOKEN = "engine";
+
+  // Legal moves by position key, shared by every game on this server
+  private static final LegalMoveCache LEGAL_MOVES =
+          new LegalMoveCache(Integer.getInteger(CACHE_SIZE_PROPERTY, 16_384));
+
   private final int gameID;
   private final ChessGame chessGame; // The chess game logic
   private final Map<String, String> players = new HashMap<>(); // authToken -> playerName
@@ -23,8 +38,10 @@ public class GameState {
   private final Map<String, ChessGame.TeamColor> playerColors = new HashMap<>(); // authToken -> TeamColor
 
   private final Set<String> observers = new HashSet<>();
+  private final List<ChessMove> moveHistory = new ArrayList<>(); // every move played, from the start
   private String winnerAuthToken;
   private boolean gameOver;
+  private ChessGame.TeamColor engineColor; // null unless the server plays one side
 
   public GameState(int gameID) {
     this.gameID = gameID;
@@ -34,12 +51,18 @@ public class GameState {
 
   // Optional: Method to get the winner's username
 
-  public void setGameOver(boolean gameOver) {
+  /**
+   * @return true if this call ended the game, so whoever ends a game can
+   * tell that nobody else already has
+   */
+  public synchronized boolean setGameOver(boolean gameOver) {
+    boolean ended = gameOver && !this.gameOver;
     this.gameOver = gameOver;
+    return ended;
   }
 
 
-  public boolean addPlayer(String authToken, String playerName) {
+  public synchronized boolean addPlayer(String authToken, String playerName) {
     if (players.containsKey(authToken)) {
       // Player already in game
       return false;
@@ -54,12 +77,15 @@ public class GameState {
   }
 
 
+  /**
+   * @return false if the player is not in the game or it is already over
+   */
   public synchronized boolean markResigned(String authToken) {
-    if (!players.containsKey(authToken)) {
-      return false; // Player not part of the game
+    if (gameOver || !players.containsKey(authToken)) {
+      return false; // Player not part of the game, or it ended first
     }
     this.gameOver = true;
-    this.winnerAuthToken = getOpponentAuthToken(authToken);
+    this.winnerAuthToken = engineColor != null ? ENGINE_TOKEN : getOpponentAuthToken(authToken);
     return true;
   }
 
@@ -73,6 +99,9 @@ public class GameState {
   }
 
   public String getWinnerUsername() {
+    if (ENGINE_TOKEN.equals(winnerAuthToken)) {
+      return ENGINE_NAME;
+    }
     if (winnerAuthToken != null) {
       return players.get(winnerAuthToken);
     }
@@ -81,17 +110,52 @@ public class GameState {
 
 
 
-  public void assignPlayerTeamColor(String authToken, ChessGame.TeamColor teamColor) {
+  public synchronized void assignPlayerTeamColor(String authToken, ChessGame.TeamColor teamColor) {
     playerColors.put(authToken, teamColor);
   }
 
 
 
-  public void addObserver(String authToken) {
+  /**
+   * Hands one side of the game to the server's engine; moves for that side
+   * then come only through {@link #makeEngineMove}. Only a game that has not
+   * started can be given to the engine, and only a side no player holds.
+   *
+   * @param engineColor the side the engine plays
+   * @return false, changing nothing, if the engine already plays a side,
+   * moves have been played, or a player holds that side
+   */
+  public synchronized boolean setEngineColor(ChessGame.TeamColor engineColor) {
+    if (this.engineColor != null || !moveHistory.isEmpty() || playerColors.containsValue(engineColor)) {
+      return false;
+    }
+    this.engineColor = engineColor;
+    return true;
+  }
+
+  public synchronized ChessGame.TeamColor getEngineColor() {
+    return engineColor;
+  }
+
+  /**
+   * @return true if the game is still going and the engine is to move
+   */
+  public synchronized boolean isEngineTurn() {
+    return !gameOver && engineColor != null && chessGame.getTeamTurn() == engineColor;
+  }
+
+  /**
+   * @return a copy of the game, for searching away from the WebSocket thread
+   */
+  public synchronized ChessGame copyGame() {
+    return chessGame.copy();
+  }
+
+  public synchronized void addObserver(String authToken) {
     observers.add(authToken);
   }
 
-  public boolean removePlayer(String authToken) {
+  public synchronized boolean removePlayer(String authToken) {
     boolean removed = players.remove(authToken) != null;
     if (removed) {
       playerColors.remove(authToken); // Also remove the team color association
@@ -100,7 +164,7 @@ public class GameState {
   }
 
 
-  public boolean removeObserver(String authToken) {
+  public synchronized boolean removeObserver(String authToken) {
     return observers.remove(authToken);
   }
 
@@ -117,10 +181,11 @@ public class GameState {
   }
 
 
-  public boolean isGameOver() {
+  // Engine moves end games on search threads
+  public synchronized boolean isGameOver() {
     return gameOver;
   }
-  public GameState.MoveResult makeMove(String authToken, ChessMove move) {
+  public synchronized GameState.MoveResult makeMove(String authToken, ChessMove move) {
     if (gameOver) {
       return new MoveResult(false, "Game is already over");
     }
@@ -136,33 +201,187 @@ public class GameState {
       return new MoveResult(false, "Player's team color is not assigned");
     }
 
+    if (playerColor == engineColor) {
+      return new MoveResult(false, "That side is played by the computer");
+    }
+
     // Validate if it's the player's turn
     if (chessGame.getTeamTurn() != playerColor) {
       return new MoveResult(false, "It is not your turn");
     }
 
+    return applyMove(move, playerColor, authToken);
+  }
+
+  /**
+   * Plays the engine's reply
+   *
+   * @param move        the move the engine chose
+   * @param positionKey key of the position the engine searched; if the game
+   *                    has moved on since, the move is refused
+   */
+  public synchronized GameState.MoveResult makeEngineMove(ChessMove move, long positionKey) {
+    if (gameOver) {
+      return new MoveResult(false, "Game is already over");
+    }
+    if (engineColor == null || chessGame.getTeamTurn() != engineColor) {
+      return new MoveResult(false, "It is not the computer's turn");
+    }
+    if (move == null || chessGame.getPositionKey() != positionKey) {
+      return new MoveResult(false, "The position changed while the computer was thinking");
+    }
+    return applyMove(move, engineColor, ENGINE_TOKEN);
+  }
+
+  /**
+   * @return the side a player plays, or null for anyone else
+   */
+  public synchronized ChessGame.TeamColor getPlayerTeamColor(String authToken) {
+    return playerColors.get(authToken);
+  }
+
+  /**
+   * @return a copy of the moves played so far, in order
+   */
+  public synchronized List<ChessMove> getMoveHistory() {
+    return new ArrayList<>(moveHistory);
+  }
+
+  /**
+   * Ends the game with the result the endgame tables give for the current
+   * position, as if it had been played out perfectly
+   *
+   * @param authToken the player claiming
+   * @param tablebase the server's tables
+   * @return failure if the game is over, the claimant is not playing, or the
+   * position is not in the tables
+   */
+  public synchronized GameState.MoveResult claimResult(String authToken, Tablebase tablebase) {
+    if (gameOver) {
+      return new MoveResult(false, "Game is already over");
+    }
+    if (!playerColors.containsKey(authToken)) {
+      return new MoveResult(false, "Only players can claim a result");
+    }
+    int result = tablebase.probe(chessGame);
+    if (result == Tablebase.UNKNOWN || result == Tablebase.ILLEGAL) {
+      return new MoveResult(false, "This position is not in the endgame tables");
+    }
+    gameOver = true;
+    if (result == Tablebase.DRAW) {
+      return new MoveResult(true, "Claim accepted: the position is a draw with best play", true);
+    }
+    ChessGame.TeamColor toMove = chessGame.getTeamTurn();
+    ChessGame.TeamColor winner = Tablebase.isWin(result) ? toMove : chessGame.getOpponentColor(toMove);
+    winnerAuthToken = winner == engineColor ? ENGINE_TOKEN : getPlayerAuthToken(winner);
+    int moves = (Tablebase.plies(result) + 1) / 2;
+    return new MoveResult(true, "Claim accepted: " + winner + " mates in " + moves + " with best play", true);
+  }
+
+  private String getPlayerAuthToken(ChessGame.TeamColor color) {
+    for (Map.Entry<String, ChessGame.TeamColor> entry : playerColors.entrySet()) {
+      if (entry.getValue() == color) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  private GameState.MoveResult applyMove(ChessMove move, ChessGame.TeamColor playerColor, String authToken) {
     try {
-      // Make the move using ChessGame logic
-      chessGame.makeMove(move);
+      // Validate against the cached legal moves, then play without checking again
+      ChessMove legalMove = findLegalMove(move);
+      chessGame.makeLegalMove(legalMove);
+      moveHistory.add(legalMove);
       System.out.println("Move applied. Updated board: " + chessGame.getBoard().toString());
-      // Check for game-ending conditions
+      // Check for game-ending conditions; the opponent's moves are cached for their turn too
       ChessGame.TeamColor opponentColor = chessGame.getOpponentColor(playerColor);
-      if (chessGame.isInCheckmate(opponentColor)) {
-        System.out.println("Checkmate detected! Opponent: " + opponentColor);
-        gameOver = true;
-        winnerAuthToken = getOpponentAuthToken(authToken);
-        return new MoveResult(true, "Move successful. Checkmate!");
-      } else if (chessGame.isInStalemate(opponentColor)) {
-        gameOver = true;
-        return new MoveResult(true, "Move successful. Stalemate!");
+      ChessGame.GameStatus status = chessGame.evaluateStatus(opponentColor, legalMoves(opponentColor));
+      switch (status) {
+        case CHECKMATE:
+          System.out.println("Checkmate detected! Opponent: " + opponentColor);
+          gameOver = true;
+          winnerAuthToken = authToken; // the player who delivered mate
+          return new MoveResult(true, "Move successful. Checkmate!", true);
+        case STALEMATE:
+          gameOver = true;
+          return new MoveResult(true, "Move successful. Stalemate!", true);
+        case INSUFFICIENT_MATERIAL:
+          gameOver = true;
+          return new MoveResult(true, "Move successful. Draw by insufficient material!", true);
+        case THREEFOLD_REPETITION:
+          gameOver = true;
+          return new MoveResult(true, "Move successful. Draw by threefold repetition!", true);
+        case FIFTY_MOVE_RULE:
+          gameOver = true;
+          return new MoveResult(true, "Move successful. Draw by the fifty-move rule!", true);
+        default:
+          // If no game-ending conditions, return success
+          return new MoveResult(true, "Move executed successfully");
       }
-
-      // If no game-ending conditions, return success
-      return new MoveResult(true, "Move executed successfully");
     } catch (InvalidMoveException e) {
       return new MoveResult(false, e.getMessage());
     }
   }
+
+  /**
+   * @return the legal move the client's move stands for; a promotion that
+   * names no piece is to a queen
+   * @throws InvalidMoveException if no legal move matches, promotion piece included
+   */
+  private ChessMove findLegalMove(ChessMove move) throws InvalidMoveException {
+    ChessPiece piece = chessGame.getBoard().getPiece(move.getStartPosition());
+    if (piece == null || piece.getTeamColor() != chessGame.getTeamTurn()) {
+      throw new InvalidMoveException("No valid piece at this position or wrong team's turn");
+    }
+    for (ChessMove legal : legalMoves(chessGame.getTeamTurn())) {
+      if (!legal.getStartPosition().equals(move.getStartPosition())
+              || !legal.getEndPosition().equals(move.getEndPosition())) {
+        continue;
+      }
+      ChessPiece.PieceType promotion = move.getPromotionPiece();
+      if (legal.getPromotionPiece() != null && promotion == null) {
+        promotion = ChessPiece.PieceType.QUEEN;
+      }
+      if (legal.getPromotionPiece() == promotion) {
+        return legal;
+      }
+    }
+    throw new InvalidMoveException("Move not valid for this piece");
+  }
+
+  /**
+   * Gets every legal move for a team in the current position from the shared
+   * cache, generating them only if no game has reached this position before
+   */
+  private List<ChessMove> legalMoves(ChessGame.TeamColor teamColor) {
+    return LEGAL_MOVES.get(chessGame.getPositionKey(teamColor), () -> chessGame.legalMoves(teamColor));
+  }
+
+  /**
+   * Gets the squares the piece on {@code position} can move to, for
+   * highlighting on the client. Works for either team, whoever's turn it is.
+   *
+   * @param position the square of the selected piece
+   * @return the selected square and its legal destinations, empty if the
+   * square holds no piece
+   */
+  public synchronized LegalMovesDTO getLegalMoves(ChessPosition position) {
+    List<ChessPosition> targets = new ArrayList<>();
+    ChessPiece piece = chessGame.getBoard().getPiece(position);
+    if (piece != null) {
+      for (ChessMove legal : legalMoves(piece.getTeamColor())) {
+        if (legal.getStartPosition().equals(position) && !targets.contains(legal.getEndPosition())) {
+          targets.add(legal.getEndPosition());
+        }
+      }
+    }
+    return new LegalMovesDTO(position, targets);
+  }
+
+  public static LegalMoveCache getLegalMoveCache() {
+    return LEGAL_MOVES;
+  }
   @Override
   public String toString() {
     return "GameState{" +
@@ -178,10 +397,19 @@ public class GameState {
   public static class MoveResult {
     private final boolean successful;
     private final String message;
+    private final boolean gameEnded;
 
     public MoveResult(boolean successful, String message) {
+      this(successful, message, false);
+    }
+
+    /**
+     * @param gameEnded whether this move or claim is what ended the game
+     */
+    public MoveResult(boolean successful, String message, boolean gameEnded) {
       this.successful = successful;
       this.message = message;
+      this.gameEnded = gameEnded;
     }
 
     public boolean isSuccessful() {
@@ -195,12 +423,21 @@ public class GameState {
     public String getErrorMessage() {
       return !successful ? message : null;
     }
+
+    /**
+     * @return true for the one result that ended the game; decided under the
+     * game's lock, so a game is never reported as ended twice
+     */
+    public boolean isGameEnded() {
+      return gameEnded;
+    }
   }
 
-  public GameStateDTO toDTO() {
+  public synchronized GameStateDTO toDTO() {
     GameStateDTO dto = new GameStateDTO();
     dto.setGameID(this.gameID);
-    dto.setPlayers(this.players);
+    // Copies, since the DTO is serialized after this returns
+    dto.setPlayers(new HashMap<>(this.players));
 
     // Convert TeamColor to String for serialization
     Map<String, String> colorMap = new HashMap<>();
@@ -209,13 +446,15 @@ public class GameState {
     }
     dto.setPlayerColors(colorMap);
 
-    dto.setObservers(this.observers);
+    dto.setObservers(new HashSet<>(this.observers));
     dto.setGameOver(this.gameOver);
+    if (this.engineColor != null) {
+      dto.setEngineColor(this.engineColor.toString());
+    }
 
     // Add winner information if the game is over
     if (this.gameOver && this.winnerAuthToken != null) {
-      String winnerUsername = this.players.get(this.winnerAuthToken);
-      dto.setWinner(winnerUsername); // Ensure GameStateDTO has a 'winner' field
+      dto.setWinner(getWinnerUsername()); // Ensure GameStateDTO has a 'winner' field
     }
 
     // Serialize the chessboard consistently from White's perspective
@@ -223,7 +462,7 @@ public class GameState {
     ChessBoard board = this.chessGame.getBoard();
     for (int row = 1; row <= 8; row++) {
       for (int col = 1; col <= 8; col++) {
-        ChessPosition pos = new ChessPosition(row, col); // row 1 is White's side
+        ChessPosition pos = ChessPosition.of(row, col); // row 1 is White's side
         ChessPiece piece = board.getPiece(pos);
         if (piece != null) {
           boardMap.put(pos.toString(), piece.toString());
@@ -231,6 +470,7 @@ public class GameState {
       }
     }
     dto.setBoard(boardMap);
+    dto.setFen(chessGame.toFen());
 
     return dto;
   }
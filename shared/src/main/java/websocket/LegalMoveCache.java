@@ -0,0 +1,100 @@
+package websocket;
+
+import chess.ChessMove;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache from position key (see {@link chess.ChessGame#getPositionKey()})
+ * to the legal moves of the side to move in that position.
+ * <p>
+ * One cache is shared by every game on the server, so popular openings are
+ * generated once and then served to every game that reaches them. The cache
+ * is split into segments, each guarded by its own lock and evicting its least
+ * recently used entry when full, so games on different threads rarely wait on
+ * each other.
+ */
+public final class LegalMoveCache {
+
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * @param capacity the most positions to hold before evicting
+   */
+  public LegalMoveCache(int capacity) {
+    if (capacity < SEGMENTS) {
+      throw new IllegalArgumentException("Cache capacity must be at least " + SEGMENTS);
+    }
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(capacity / SEGMENTS);
+    }
+  }
+
+  /**
+   * Gets the legal moves for a position, generating and storing them on a miss
+   *
+   * @param positionKey key of the position, including the side to move
+   * @param generator   produces the moves when they are not cached
+   * @return an unmodifiable list of the legal moves
+   */
+  public List<ChessMove> get(long positionKey, Supplier<? extends Collection<ChessMove>> generator) {
+    Segment segment = segments[(int) (positionKey >>> 60) & (SEGMENTS - 1)];
+    List<ChessMove> moves;
+    synchronized (segment) {
+      moves = segment.get(positionKey);
+    }
+    if (moves != null) {
+      hits.increment();
+      return moves;
+    }
+    misses.increment();
+
+    // Generate outside the lock; two games racing on the same position just store equal lists
+    List<ChessMove> generated = List.copyOf(generator.get());
+    synchronized (segment) {
+      segment.put(positionKey, generated);
+    }
+    return generated;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  private static final class Segment extends LinkedHashMap<Long, List<ChessMove>> {
+    private final int capacity;
+
+    Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, List<ChessMove>> eldest) {
+      return size() > capacity;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package websocket.commands;
 
 import java.util.Objects;
+import chess.ChessGame;
 import chess.ChessMove;
 
 /**
@@ -16,6 +17,7 @@ public class UserGameCommand {
     private Integer gameID;
     private ChessMove move; // Only applicable for MAKE_MOVE commands
     private String pieceSquare;
+    private ChessGame.TeamColor engineColor; // Only applicable for CONNECT commands
 
 
     public enum CommandType {
@@ -23,7 +25,12 @@ public class UserGameCommand {
         MAKE_MOVE,
         LEAVE,
         RESIGN,
-        HIGHLIGHT
+        HIGHLIGHT,
+        BOOK_MOVE,
+        CLAIM_RESULT,
+        SUBSCRIBE_ANALYSIS,
+        UNSUBSCRIBE_ANALYSIS,
+        HINT
     }
 
     public CommandType getCommandType() {
@@ -71,6 +78,20 @@ public class UserGameCommand {
         this.pieceSquare = pieceSquare;
     }
 
+    /**
+     * Returns the side the server's engine should play, for a player who
+     * connects to a game to play against the computer.
+     *
+     * @return The engine's color, or `null` for a game between two players.
+     */
+    public ChessGame.TeamColor getEngineColor() {
+        return engineColor;
+    }
+
+    public void setEngineColor(ChessGame.TeamColor engineColor) {
+        this.engineColor = engineColor;
+    }
+
 
     @Override
     public boolean equals(Object o) {
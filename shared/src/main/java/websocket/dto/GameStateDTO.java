@@ -12,7 +12,9 @@ public class GameStateDTO {
   private Set<String> observers;
   private boolean gameOver;
   private Map<String, String> board;
+  private String fen; // the full position, including side to move, castling and en passant
   private String winner;
+  private String engineColor; // the side the server plays, or null for two human players
 
   // Constructors
   public GameStateDTO() {}
@@ -66,8 +68,22 @@ public class GameStateDTO {
     this.board = board;
   }
 
-  // Inside GameStateDTO.java
+  public String getFen() {
+    return fen;
+  }
+
+  public void setFen(String fen) {
+    this.fen = fen;
+  }
+
 
+  public String getEngineColor() {
+    return engineColor;
+  }
+
+  public void setEngineColor(String engineColor) {
+    this.engineColor = engineColor;
+  }
 
   public String getWinner() {
     return winner;
@@ -87,6 +103,8 @@ public class GameStateDTO {
             ", observers=" + observers +
             ", gameOver=" + gameOver +
             ", board=" + board +
+            ", fen=" + fen +
+            ", engineColor=" + engineColor +
             '}';
   }
 }
\ No newline at end of file
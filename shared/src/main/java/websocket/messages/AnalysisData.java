@@ -0,0 +1,86 @@
+package websocket.messages;
+
+import java.util.List;
+
+/**
+ * The engine's current view of a game, sent to observers who asked for it:
+ * its best few moves, each with the line of play it expects to follow.
+ */
+public class AnalysisData {
+  private int gameID;
+  private int depth;
+  private List<Line> lines;
+
+  public AnalysisData() {}
+
+  public AnalysisData(int gameID, int depth, List<Line> lines) {
+    this.gameID = gameID;
+    this.depth = depth;
+    this.lines = lines;
+  }
+
+  public int getGameID() {
+    return gameID;
+  }
+
+  public void setGameID(int gameID) {
+    this.gameID = gameID;
+  }
+
+  /**
+   * @return how many plies deep the engine searched
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  public void setDepth(int depth) {
+    this.depth = depth;
+  }
+
+  /**
+   * @return the lines, best first for the side to move
+   */
+  public List<Line> getLines() {
+    return lines;
+  }
+
+  public void setLines(List<Line> lines) {
+    this.lines = lines;
+  }
+
+  public static class Line {
+    private int score;
+    private List<String> moves;
+
+    public Line() {}
+
+    public Line(int score, List<String> moves) {
+      this.score = score;
+      this.moves = moves;
+    }
+
+    /**
+     * @return centipawns from white's point of view, positive when white is
+     * better; mates are scored as {@code chess.engine.Search} scores them
+     */
+    public int getScore() {
+      return score;
+    }
+
+    public void setScore(int score) {
+      this.score = score;
+    }
+
+    /**
+     * @return the moves of the line in coordinate notation, such as {@code e2e4}
+     */
+    public List<String> getMoves() {
+      return moves;
+    }
+
+    public void setMoves(List<String> moves) {
+      this.moves = moves;
+    }
+  }
+}
@@ -15,7 +15,8 @@ public class ServerMessage {
         ERROR,
         NOTIFICATION,
         HIGHLIGHT,
-        GAME_OVER
+        GAME_OVER,
+        ANALYSIS
     }
 
     // Constructor for general messages
@@ -74,6 +75,10 @@ public class ServerMessage {
         return this.highlightData;
     }
 
+    public void setHighlightData(HighlightData highlightData) {
+        this.highlightData = highlightData;
+    }
+
 
 
     // equals and hashCode methods (omitted for brevity)
@@ -0,0 +1,31 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class CanonicalInstanceTests {
+
+    @Test
+    @DisplayName("Factories return shared instances")
+    public void sharedInstances() {
+        Assertions.assertSame(ChessPosition.of(2, 5), ChessPosition.of(2, 5));
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals(new ChessPosition(2, 5), ChessPosition.of(2, 5));
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
+                ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals(new ChessPosition(0, 9), ChessPosition.of(0, 9));
+    }
+
+    @Test
+    @DisplayName("Generated moves and promotions use shared instances")
+    public void movesUseSharedInstances() throws InvalidMoveException {
+        var game = Perft.loadFen("7k/4P3/8/8/8/8/8/K7 w - - 0 1");
+        for (ChessMove move : game.validMoves(ChessPosition.of(7, 5))) {
+            Assertions.assertSame(ChessPosition.of(8, 5), move.getEndPosition());
+        }
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(8, 5), ChessPiece.PieceType.KNIGHT));
+
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                game.getBoard().getPiece(ChessPosition.of(8, 5)));
+    }
+}
@@ -0,0 +1,89 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class DrawRuleTests {
+
+    @Test
+    @DisplayName("Shuffling knights repeats the position")
+    public void repetition() throws InvalidMoveException {
+        var game = new ChessGame();
+        Assertions.assertEquals(1, game.getRepetitionCount());
+
+        shuffleKnights(game);
+        Assertions.assertEquals(2, game.getRepetitionCount());
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.evaluateStatus(game.getTeamTurn()));
+
+        shuffleKnights(game);
+        Assertions.assertEquals(3, game.getRepetitionCount());
+        Assertions.assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, game.evaluateStatus(game.getTeamTurn()));
+    }
+
+    @Test
+    @DisplayName("A pawn move resets the halfmove clock and the repetition count")
+    public void pawnMoveResets() throws InvalidMoveException {
+        var game = new ChessGame();
+        shuffleKnights(game);
+        Assertions.assertEquals(4, game.getHalfmoveClock());
+
+        game.makeMove(move(2, 5, 4, 5));
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+        Assertions.assertEquals(1, game.getRepetitionCount());
+    }
+
+    @Test
+    @DisplayName("Lost castling rights make a different position")
+    public void castlingRightsBreakRepetition() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(1, 5, 2, 5));
+        game.makeMove(move(8, 5, 7, 5));
+        game.makeMove(move(2, 5, 1, 5));
+        game.makeMove(move(7, 5, 8, 5));
+
+        // Same pieces as after 1. e4 e5, but neither king may castle now
+        Assertions.assertEquals(1, game.getRepetitionCount());
+    }
+
+    @Test
+    @DisplayName("Fifty moves without a capture or pawn move is a draw")
+    public void fiftyMoveRule() throws InvalidMoveException {
+        var game = Perft.loadFen("8/8/4k3/8/8/8/R7/4K3 w - - 98 80");
+        game.makeMove(move(2, 1, 2, 2));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.evaluateStatus(game.getTeamTurn()));
+
+        game.makeMove(move(6, 5, 7, 5));
+        Assertions.assertEquals(ChessGame.FIFTY_MOVE_LIMIT, game.getHalfmoveClock());
+        Assertions.assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, game.evaluateStatus(game.getTeamTurn()));
+    }
+
+    @Test
+    @DisplayName("Unmake restores the clock and castling")
+    public void unmakeRestoresState() throws InvalidMoveException {
+        var game = Perft.loadFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 7 1");
+        long key = game.getPositionKey();
+
+        game.makeMove(move(1, 5, 1, 7));
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                game.getBoard().getPiece(new ChessPosition(1, 6)));
+        game.unmakeMove();
+
+        Assertions.assertEquals(key, game.getPositionKey());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                game.getBoard().getPiece(new ChessPosition(1, 8)));
+        Assertions.assertThrows(IllegalStateException.class, game::unmakeMove);
+    }
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+        game.makeMove(move(6, 6, 8, 7));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,69 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class EvaluationTests {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    @DisplayName("The starting position is level")
+    public void startingPositionLevel() {
+        var game = new ChessGame();
+
+        Assertions.assertEquals(0, game.evaluate());
+        Assertions.assertEquals(0, game.evaluate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Mirrored positions score the same for the side to move")
+    public void mirroredPositions() {
+        var white = ChessGame.fromFen("4k3/8/8/3p4/8/2N5/PP6/4K3 w - - 0 1");
+        var black = ChessGame.fromFen("4k3/pp6/2n5/8/3P4/8/8/4K3 b - - 0 1");
+
+        Assertions.assertEquals(white.evaluate(), black.evaluate());
+        Assertions.assertEquals(white.evaluate(), -white.evaluate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("The incremental evaluation matches a freshly built board")
+    public void incrementalMatchesRebuilt() {
+        var game = ChessGame.fromFen(KIWIPETE);
+        var moves = new MoveList();
+        // Play the first legal move a few times over, covering castling and captures on the way
+        for (int i = 0; i < 12; i++) {
+            game.legalMoves(game.getTeamTurn(), moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeLegalMove(moves.get(i % moves.size()));
+            Assertions.assertEquals(ChessGame.fromFen(game.toFen()).evaluate(), game.evaluate(), game.toFen());
+        }
+    }
+
+    @Test
+    @DisplayName("Taking a move back restores the evaluation")
+    public void unmakeRestores() {
+        var game = ChessGame.fromFen(KIWIPETE);
+        int before = game.evaluate();
+        var moves = new MoveList();
+        game.legalMoves(game.getTeamTurn(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeLegalMove(moves.get(i));
+            game.unmakeMove();
+            Assertions.assertEquals(before, game.evaluate(), Move.toString(moves.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Extra material and an advanced king in the endgame score well")
+    public void materialAndPhase() {
+        var queenUp = ChessGame.fromFen("rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        Assertions.assertTrue(queenUp.evaluate() > 800, "Score " + queenUp.evaluate());
+
+        // With only pawns left the endgame tables apply, which want the king in the centre
+        var centralKing = ChessGame.fromFen("4k3/pppp4/8/8/3K4/8/PPPP4/8 w - - 0 1");
+        var cornerKing = ChessGame.fromFen("4k3/pppp4/8/8/8/8/PPPP4/K7 w - - 0 1");
+        Assertions.assertTrue(centralKing.evaluate() > cornerKing.evaluate());
+    }
+}
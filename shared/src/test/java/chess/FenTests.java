@@ -0,0 +1,84 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("New game exports the standard starting FEN")
+    public void startPosition() {
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", new ChessGame().toFen());
+    }
+
+    @Test
+    @DisplayName("FEN round-trips through import and export")
+    public void roundTrip() {
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            Assertions.assertEquals(reference.fen(), ChessGame.fromFen(reference.fen()).toFen(), reference.name());
+        }
+        String enPassant = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3";
+        Assertions.assertEquals(enPassant, ChessGame.fromFen(enPassant).toFen());
+    }
+
+    @Test
+    @DisplayName("Played moves update every FEN field")
+    public void afterMoves() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        Assertions.assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3", game.toFen());
+
+        game.makeMove(move(1, 5, 2, 5));
+        Assertions.assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPPKPPP/RNBQ1BNR b kq - 1 3", game.toFen());
+    }
+
+    @Test
+    @DisplayName("Imported game has the same key as one played to the position")
+    public void sameKeyAsPlayed() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 3, 5, 3));
+
+        Assertions.assertEquals(game.getPositionKey(), ChessGame.fromFen(game.toFen()).getPositionKey());
+    }
+
+    @Test
+    @DisplayName("An en passant square no pawn can take on is dropped on import")
+    public void uncapturableEnPassant() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+
+        var imported = ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        Assertions.assertEquals(game.getPositionKey(), imported.getPositionKey());
+        Assertions.assertEquals(game.toFen(), imported.toFen());
+        Assertions.assertEquals(imported.toFen(), ChessGame.fromFen(imported.toFen()).toFen());
+        // Nor is one kept with no pawn beside it that just pushed
+        Assertions.assertEquals("4k3/8/8/3pP3/8/8/8/4K3 w - - 0 1",
+                ChessGame.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - f6 0 1").toFen());
+    }
+
+    @Test
+    @DisplayName("Malformed FEN is rejected")
+    public void malformed() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8 w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/9 w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 x - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w X - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w - e9 0 1"));
+        // Rows short or long of 8 squares
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("7/8/8/8/8/8/8/8 w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/K6 w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/54 w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/K7k w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/ w - - 0 1"));
+        // En passant squares off the rows a double push skips
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w - e4 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 b - a1 0 1"));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,46 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class GameStatusEvaluationTests {
+
+    @Test
+    @DisplayName("Opening position is ongoing")
+    public void ongoing() {
+        var game = new ChessGame();
+
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.evaluateStatus(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.evaluateStatus(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Check, checkmate and stalemate")
+    public void checkAndMate() {
+        var check = Perft.loadFen("rnb1kbnr/pppp1ppp/8/4p3/4P2q/5P2/PPPP2PP/RNBQKBNR w - - 0 1");
+        var mate = Perft.loadFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w - - 0 1");
+        var stalemate = Perft.loadFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+
+        Assertions.assertEquals(ChessGame.GameStatus.CHECK, check.evaluateStatus(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, mate.evaluateStatus(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, stalemate.evaluateStatus(ChessGame.TeamColor.BLACK));
+        Assertions.assertTrue(ChessGame.GameStatus.STALEMATE.isDraw());
+        Assertions.assertFalse(ChessGame.GameStatus.CHECKMATE.isDraw());
+    }
+
+    @Test
+    @DisplayName("Insufficient material")
+    public void insufficientMaterial() {
+        Assertions.assertEquals(ChessGame.GameStatus.INSUFFICIENT_MATERIAL,
+                Perft.loadFen("8/8/4k3/8/8/3K4/8/8 w - - 0 1").evaluateStatus(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.INSUFFICIENT_MATERIAL,
+                Perft.loadFen("8/8/4k3/8/8/3KN3/8/8 w - - 0 1").evaluateStatus(ChessGame.TeamColor.WHITE));
+        // Both bishops on dark squares (c1 and f8)
+        Assertions.assertEquals(ChessGame.GameStatus.INSUFFICIENT_MATERIAL,
+                Perft.loadFen("5b2/8/4k3/8/8/3K4/8/2B5 w - - 0 1").evaluateStatus(ChessGame.TeamColor.WHITE));
+        // Bishops on opposite colors can still mate
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING,
+                Perft.loadFen("4b3/8/4k3/8/8/3K4/8/2B5 w - - 0 1").evaluateStatus(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING,
+                Perft.loadFen("8/8/4k3/8/8/3KNN2/8/8 w - - 0 1").evaluateStatus(ChessGame.TeamColor.WHITE));
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class MoveEncodingTests {
+
+    @Test
+    @DisplayName("Packed moves round trip through ChessMove")
+    public void roundTrip() {
+        var promotion = new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(8, 6), ChessPiece.PieceType.KNIGHT);
+        int move = Move.of(promotion);
+
+        Assertions.assertEquals(Bitboards.square(7, 5), Move.from(move));
+        Assertions.assertEquals(Bitboards.square(8, 6), Move.to(move));
+        Assertions.assertEquals(ChessPiece.PieceType.KNIGHT, Move.promotion(move));
+        Assertions.assertEquals(promotion, Move.toChessMove(move));
+        Assertions.assertEquals("e7f8n", Move.toString(move));
+        Assertions.assertNotEquals(Move.NONE, Move.of(new ChessMove(ChessPosition.of(1, 1), ChessPosition.of(1, 2), null)));
+    }
+
+    @Test
+    @DisplayName("Generated moves carry capture and double push flags")
+    public void flags() {
+        var game = Perft.loadFen("4k3/8/8/8/8/3p4/4P3/4K3 w - - 0 1");
+        var moves = new MoveList();
+        game.legalMoves(ChessGame.TeamColor.WHITE, moves);
+
+        int captures = 0;
+        int doublePushes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            captures += Move.isCapture(moves.get(i)) ? 1 : 0;
+            doublePushes += Move.hasFlag(moves.get(i), Move.FLAG_DOUBLE_PUSH) ? 1 : 0;
+        }
+        // exd3 is the only capture
+        Assertions.assertEquals(1, captures, moves.toString());
+        Assertions.assertEquals(1, doublePushes, moves.toString());
+        Assertions.assertTrue(moves.contains(Move.encode(Bitboards.square(2, 5), Bitboards.square(4, 5))));
+    }
+}
@@ -0,0 +1,49 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class PerftTests {
+
+    /**
+     * Deeper counts are left to {@link Perft#main(String[])} to keep the suite quick
+     */
+    private static final long MAX_TEST_NODES = 100_000;
+
+    @Test
+    @DisplayName("Perft matches reference counts")
+    public void referenceCounts() {
+        for (Perft.Reference reference : Perft.REFERENCES) {
+            for (int depth = 1; depth <= reference.maxDepth(); depth++) {
+                long expected = reference.expected(depth);
+                if (expected > MAX_TEST_NODES) {
+                    break;
+                }
+                Assertions.assertEquals(expected, Perft.perft(Perft.loadFen(reference.fen()), depth),
+                        reference.name() + " at depth " + depth);
+                Assertions.assertEquals(expected, Perft.perftPacked(Perft.loadFen(reference.fen()), depth),
+                        reference.name() + " with packed moves at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Perft leaves the game unchanged")
+    public void gameRestored() {
+        var game = new ChessGame();
+        var before = new ChessGame();
+        Perft.perft(game, 3);
+
+        Assertions.assertEquals(before.getBoard(), game.getBoard());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("FEN side to move is honoured")
+    public void fenSideToMove() {
+        var game = Perft.loadFen("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1");
+
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
+                game.getBoard().getPiece(new ChessPosition(8, 1)));
+    }
+}
@@ -0,0 +1,52 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class PositionCodecTests {
+
+    @Test
+    @DisplayName("Encoding round-trips board, turn, castling, en passant and counters")
+    public void roundTrip() {
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b Kq - 3 17",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/8/8/8/8/8/8/8 w - - 0 1"
+        };
+        for (String fen : fens) {
+            byte[] bytes = PositionCodec.encode(ChessGame.fromFen(fen));
+            Assertions.assertEquals(PositionCodec.SIZE, bytes.length);
+
+            ChessGame decoded = PositionCodec.decode(bytes);
+            Assertions.assertEquals(fen, decoded.toFen());
+            Assertions.assertEquals(ChessGame.fromFen(fen).getPositionKey(), decoded.getPositionKey());
+        }
+    }
+
+    @Test
+    @DisplayName("Encoding into a larger buffer at an offset")
+    public void offset() {
+        ChessGame game = new ChessGame();
+        byte[] buffer = new byte[PositionCodec.SIZE + 5];
+        PositionCodec.encode(game, buffer, 5);
+
+        Assertions.assertEquals(game.toFen(), PositionCodec.decode(buffer, 5).toFen());
+    }
+
+    @Test
+    @DisplayName("Boards with too many pieces or bad input are rejected")
+    public void rejected() {
+        var board = new ChessBoard();
+        for (int row = 1; row <= 5; row++) {
+            for (int col = 1; col <= 8; col++) {
+                board.addPiece(new ChessPosition(row, col),
+                        new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            }
+        }
+        var game = new ChessGame();
+        game.setBoard(board);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PositionCodec.encode(game));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PositionCodec.decode(new byte[10]));
+    }
+}
@@ -0,0 +1,93 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class ZobristTests {
+
+    @Test
+    @DisplayName("Incremental key matches a board built from scratch")
+    public void incrementalMatchesScratch() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 4));
+
+        var rebuilt = new ChessBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                if (piece != null) {
+                    rebuilt.addPiece(new ChessPosition(row, col), piece);
+                }
+            }
+        }
+        rebuilt.setCastlingRights(game.getBoard().castlingRights());
+
+        Assertions.assertEquals(rebuilt.getZobristKey(), game.getBoard().getZobristKey());
+        Assertions.assertEquals(rebuilt.hashCode(), game.getBoard().hashCode());
+    }
+
+    @Test
+    @DisplayName("Transpositions share a key")
+    public void transpositions() throws InvalidMoveException {
+        var first = new ChessGame();
+        first.makeMove(move(1, 7, 3, 6));
+        first.makeMove(move(8, 7, 6, 6));
+        first.makeMove(move(1, 2, 3, 3));
+
+        var second = new ChessGame();
+        second.makeMove(move(1, 2, 3, 3));
+        second.makeMove(move(8, 7, 6, 6));
+        second.makeMove(move(1, 7, 3, 6));
+
+        Assertions.assertEquals(first.getPositionKey(), second.getPositionKey());
+    }
+
+    @Test
+    @DisplayName("Side to move changes the position key")
+    public void sideToMove() {
+        var game = new ChessGame();
+        long whiteToMove = game.getPositionKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        Assertions.assertNotEquals(whiteToMove, game.getPositionKey());
+        Assertions.assertEquals(whiteToMove, game.getBoard().getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Unmake restores the key")
+    public void unmakeRestoresKey() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        long start = board.getZobristKey();
+
+        board.makeMove(move(2, 4, 4, 4));
+        Assertions.assertNotEquals(start, board.getZobristKey());
+        board.unmakeMove();
+
+        Assertions.assertEquals(start, board.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Castling rights and en passant file are part of the key")
+    public void castlingAndEnPassant() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        long start = board.getZobristKey();
+        int hash = board.hashCode();
+        int rights = board.castlingRights();
+
+        board.setCastlingRights(ChessBoard.WHITE_KINGSIDE | ChessBoard.BLACK_QUEENSIDE);
+        board.setEnPassantSquare(Bitboards.square(3, 5));
+        Assertions.assertNotEquals(start, board.getZobristKey());
+        Assertions.assertEquals(hash, board.hashCode());
+
+        board.setCastlingRights(rights);
+        board.setEnPassantSquare(-1);
+        Assertions.assertEquals(start, board.getZobristKey());
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
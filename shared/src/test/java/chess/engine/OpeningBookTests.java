@@ -0,0 +1,89 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+
+public class OpeningBookTests {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("book", ".bin");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("The heaviest book move is played, and unknown positions have none")
+    public void bestMove() throws IOException {
+        new OpeningBook.Builder()
+                .addLine("e2e4 e7e5 g1f3", 16)
+                .addLine("e2e4 c7c5", 16)
+                .addLine("d2d4 d7d5", 16)
+                .write(file);
+        var book = OpeningBook.open(file);
+        Assertions.assertEquals(6, book.size());
+
+        var game = new ChessGame();
+        Assertions.assertEquals("e2e4", Move.toString(book.bestMove(game)));
+        game.makeLegalMove(book.bestMove(game));
+        String reply = Move.toString(book.bestMove(game));
+        Assertions.assertTrue(reply.equals("e7e5") || reply.equals("c7c5"), reply);
+
+        var outOfBook = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        Assertions.assertEquals(Move.NONE, book.bestMove(outOfBook));
+        Assertions.assertEquals(Move.NONE, book.pickMove(outOfBook, 42));
+    }
+
+    @Test
+    @DisplayName("Random picks only choose book moves, each in turn")
+    public void pickMove() throws IOException {
+        new OpeningBook.Builder()
+                .addLine("e2e4", 16)
+                .addLine("e2e4", 16)
+                .addLine("d2d4", 16)
+                .write(file);
+        var book = OpeningBook.open(file);
+        var game = new ChessGame();
+
+        var picked = new HashSet<String>();
+        for (long random = 0; random < 3; random++) {
+            picked.add(Move.toString(book.pickMove(game, random)));
+        }
+        Assertions.assertEquals(2, picked.size(), picked.toString());
+        Assertions.assertTrue(picked.contains("e2e4") && picked.contains("d2d4"), picked.toString());
+    }
+
+    @Test
+    @DisplayName("Castling is stored as the king taking its rook and read back as a castle")
+    public void castling() throws IOException {
+        new OpeningBook.Builder().addLine("e2e4 e7e5 g1f3 b8c6 f1c4 g8f6 e1g1", 16).write(file);
+        var book = OpeningBook.open(file);
+        var game = ChessGame.fromFen("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+
+        int move = book.bestMove(game);
+        Assertions.assertEquals("e1g1", Move.toString(move));
+        Assertions.assertTrue(Move.hasFlag(move, Move.FLAG_CASTLE));
+        // Polyglot's e1h1: from e1 (file 4, row 0), to h1 (file 7, row 0)
+        Assertions.assertEquals((4 << 6) | 7, OpeningBook.toBookMove(move));
+    }
+
+    @Test
+    @DisplayName("Files that are not whole entries and illegal lines are rejected")
+    public void invalidInput() throws IOException {
+        Files.write(file, new byte[OpeningBook.ENTRY_SIZE + 1]);
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(file));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new OpeningBook.Builder().addLine("e2e5", 16));
+    }
+}
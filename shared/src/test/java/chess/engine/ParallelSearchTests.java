@@ -0,0 +1,96 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelSearchTests {
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void createPool() {
+        pool = ParallelSearch.newPool(2);
+    }
+
+    @AfterEach
+    public void shutDownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Helpers sharing a table find the same mate")
+    public void mateInOne() {
+        var search = new ParallelSearch(pool, new TranspositionTable(1), 4);
+        var result = search.search(ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), SearchLimits.ofDepth(3));
+
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                result.bestChessMove());
+        Assertions.assertEquals(Search.MATE_SCORE - 1, result.score());
+    }
+
+    @Test
+    @DisplayName("The searched game is left alone and nodes from every thread are counted")
+    public void gameUntouched() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        var game = ChessGame.fromFen(fen);
+        var single = new Search(new TranspositionTable(1)).search(ChessGame.fromFen(fen), SearchLimits.ofDepth(3));
+        var parallel = new ParallelSearch(pool, new TranspositionTable(1), 2).search(game, SearchLimits.ofDepth(3));
+
+        Assertions.assertEquals(fen, game.toFen());
+        Assertions.assertEquals(3, parallel.depth());
+        Assertions.assertTrue(parallel.nodes() > single.nodes() / 2);
+    }
+
+    @Test
+    @DisplayName("A timed parallel search returns within its budget")
+    public void timeBudget() {
+        var search = new ParallelSearch(pool, new TranspositionTable(4), 2);
+        var result = search.searchAsync(ChessGame.fromFen(
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"),
+                SearchLimits.ofTime(200)).join();
+
+        Assertions.assertNotNull(result.bestChessMove());
+        Assertions.assertTrue(result.elapsedMillis() < 400, "Took " + result.elapsedMillis() + " ms");
+    }
+
+    @Test
+    @DisplayName("Time spent waiting for the pool counts against the budget")
+    public void budgetFromRequest() {
+        for (int i = 0; i < 2; i++) {
+            pool.execute(() -> {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        var search = new ParallelSearch(pool, new TranspositionTable(4), 2);
+        var result = search.searchAsync(new ChessGame(), SearchLimits.ofTime(200)).join();
+
+        // Past its deadline when it started, each thread stops after its first iteration
+        Assertions.assertNotNull(result.bestChessMove());
+        Assertions.assertTrue(result.depth() <= 2, "Searched to depth " + result.depth());
+        Assertions.assertTrue(result.elapsedMillis() >= 250, "Took " + result.elapsedMillis() + " ms");
+    }
+
+    @Test
+    @DisplayName("Copies of a game keep its repetition history")
+    public void copyKeepsHistory() throws Exception {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+        var copy = game.copy();
+
+        Assertions.assertEquals(2, copy.getRepetitionCount());
+        Assertions.assertEquals(game.toFen(), copy.toFen());
+        copy.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Assertions.assertEquals(new ChessGame().getBoard(), game.getBoard());
+    }
+}
@@ -0,0 +1,109 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Move;
+import chess.MoveList;
+import org.junit.jupiter.api.*;
+
+public class SearchTests {
+
+    @Test
+    @DisplayName("Finds a back-rank mate in one")
+    public void mateInOne() {
+        var game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        var result = new Search().search(game, SearchLimits.ofDepth(3));
+
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                result.bestChessMove());
+        Assertions.assertEquals(Search.MATE_SCORE - 1, result.score());
+        Assertions.assertTrue(Search.isMateScore(result.score()));
+    }
+
+    @Test
+    @DisplayName("Takes a hanging queen and avoids losing its own")
+    public void winsMaterial() {
+        var game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        var result = new Search().search(game, SearchLimits.ofDepth(4));
+        Assertions.assertEquals("d2d5", Move.toString(result.bestMove()));
+
+        // The queen is attacked by a pawn and must step away without walking into the rook
+        game = ChessGame.fromFen("4k3/8/2P5/3q4/8/8/8/3RK3 b - - 0 1");
+        result = new Search().search(game, SearchLimits.ofDepth(4));
+        Assertions.assertTrue(result.score() > 0, "Black is a queen up after moving it");
+    }
+
+    @Test
+    @DisplayName("Search leaves the game as it found it")
+    public void gameRestored() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        var game = ChessGame.fromFen(fen);
+        long key = game.getPositionKey();
+        new Search().search(game, SearchLimits.ofDepth(3));
+
+        Assertions.assertEquals(fen, game.toFen());
+        Assertions.assertEquals(key, game.getPositionKey());
+    }
+
+    @Test
+    @DisplayName("Stays within its time budget")
+    public void timeBudget() {
+        var game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        var result = new Search().search(game, SearchLimits.ofTime(200));
+
+        Assertions.assertNotEquals(Move.NONE, result.bestMove());
+        Assertions.assertTrue(result.depth() >= 1);
+        Assertions.assertTrue(result.elapsedMillis() < 400, "Took " + result.elapsedMillis() + " ms");
+    }
+
+    @Test
+    @DisplayName("No move when the side to move is mated or stalemated")
+    public void noLegalMoves() {
+        var mated = new Search().search(ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1"),
+                SearchLimits.ofDepth(2));
+        Assertions.assertEquals(Move.NONE, mated.bestMove());
+        Assertions.assertEquals(-Search.MATE_SCORE, mated.score());
+
+        var stalemate = new Search().search(ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"),
+                SearchLimits.ofDepth(2));
+        Assertions.assertNull(stalemate.bestChessMove());
+        Assertions.assertEquals(0, stalemate.score());
+    }
+
+    @Test
+    @DisplayName("Reports the best few moves, each with its line, best first")
+    public void multiplePrincipalVariations() {
+        String fen = "4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1";
+        var game = ChessGame.fromFen(fen);
+        var lines = new Search().searchLines(game, SearchLimits.ofDepth(4), 3);
+
+        Assertions.assertEquals(3, lines.size());
+        Assertions.assertEquals("d2d5", Move.toString(lines.get(0).move()));
+        // The line continues past the first move and can be played out
+        Assertions.assertTrue(lines.get(0).moves().length > 1);
+        var replay = game.copy();
+        var legal = new MoveList();
+        for (int move : lines.get(0).moves()) {
+            replay.legalMoves(replay.getTeamTurn(), legal);
+            Assertions.assertTrue(legal.contains(move), Move.toString(move) + " is legal");
+            replay.makeLegalMove(move);
+        }
+        Assertions.assertNotEquals(lines.get(0).move(), lines.get(1).move());
+        Assertions.assertNotEquals(lines.get(1).move(), lines.get(2).move());
+        Assertions.assertTrue(lines.get(0).score() >= lines.get(1).score());
+        Assertions.assertTrue(lines.get(1).score() >= lines.get(2).score());
+        Assertions.assertEquals(4, lines.get(0).depth());
+        Assertions.assertEquals(fen, game.toFen());
+
+        var mated = ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        Assertions.assertTrue(new Search().searchLines(mated, SearchLimits.ofDepth(2), 3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Limits are validated")
+    public void limits() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SearchLimits.ofDepth(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SearchLimits(4, -1));
+    }
+}
@@ -0,0 +1,82 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Stored entries read back intact")
+    public void roundTrip() {
+        var table = new TranspositionTable(1);
+        int move = Move.encode(12, 28, null, Move.FLAG_DOUBLE_PUSH);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -29_990, 17, TranspositionTable.LOWER);
+
+        long data = table.probe(0x1234_5678_9ABC_DEF0L);
+        Assertions.assertEquals(move, TranspositionTable.move(data));
+        Assertions.assertEquals(-29_990, TranspositionTable.score(data));
+        Assertions.assertEquals(17, TranspositionTable.depth(data));
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+        Assertions.assertEquals(0, table.probe(0x0FED_CBA9_8765_4321L));
+    }
+
+    @Test
+    @DisplayName("A full bucket keeps its deepest entries")
+    public void depthPreferred() {
+        var table = new TranspositionTable(1);
+        // keys with equal low bits share a bucket
+        long stride = 1L << 40;
+        for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+            table.store(i * stride + 7, Move.encode(0, 8), 0, 10 + i, TranspositionTable.EXACT);
+        }
+        table.store(TranspositionTable.BUCKET_SIZE * stride + 7, Move.encode(0, 8), 0, 20, TranspositionTable.EXACT);
+
+        Assertions.assertEquals(0, table.probe(7), "Shallowest entry should have been replaced");
+        for (int i = 1; i <= TranspositionTable.BUCKET_SIZE; i++) {
+            Assertions.assertNotEquals(0, table.probe(i * stride + 7));
+        }
+    }
+
+    @Test
+    @DisplayName("A shallower result does not overwrite a deeper one for the same position")
+    public void keepsDeeperResult() {
+        var table = new TranspositionTable(1);
+        int move = Move.encode(1, 18);
+        table.store(42, move, 50, 8, TranspositionTable.LOWER);
+        table.store(42, Move.NONE, 10, 3, TranspositionTable.UPPER);
+        Assertions.assertEquals(8, TranspositionTable.depth(table.probe(42)));
+
+        // After a new search the old entry gives way, but its move is kept
+        table.newSearch();
+        table.store(42, Move.NONE, 10, 3, TranspositionTable.UPPER);
+        long data = table.probe(42);
+        Assertions.assertEquals(3, TranspositionTable.depth(data));
+        Assertions.assertEquals(move, TranspositionTable.move(data));
+    }
+
+    @Test
+    @DisplayName("Statistics report hits and fill")
+    public void statistics() {
+        var table = new TranspositionTable(1);
+        var search = new Search(table);
+        search.search(ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+                SearchLimits.ofDepth(4));
+
+        Assertions.assertTrue(table.getProbes() > 0);
+        Assertions.assertTrue(table.getHits() > 0);
+        Assertions.assertTrue(table.getHitRate() > 0 && table.getHitRate() < 1);
+        Assertions.assertTrue(table.getFillPermille() > 0);
+
+        table.clear();
+        Assertions.assertEquals(0, table.getProbes());
+        Assertions.assertEquals(0, table.getFillPermille());
+    }
+
+    @Test
+    @DisplayName("Sizes are validated and rounded down to a power of two")
+    public void sizing() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+        Assertions.assertEquals(new TranspositionTable(2).getCapacity(), new TranspositionTable(3).getCapacity());
+    }
+}
@@ -0,0 +1,129 @@
+package chess.tablebase;
+
+import chess.ChessGame;
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class TablebaseTests {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tables");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    @DisplayName("Signatures put the stronger side first and list pieces in a fixed order")
+    public void canonicalSignatures() {
+        Assertions.assertEquals("KQvK", Signature.parse("KvKQ").name());
+        Assertions.assertEquals("KRPvKB", Signature.parse("kbvkpr").name());
+        Assertions.assertEquals(Signature.parse("KRvKN"), Signature.parse("KNvKR"));
+        // Captures, then promotions
+        Assertions.assertEquals(List.of("KPvK", "KRvK", "KQRvK", "KRRvK", "KRBvK", "KRNvK"),
+                Signature.parse("KRPvK").successors().stream().map(Signature::name).toList());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Signature.parse("KQK"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Signature.parse("KQQvKRR"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Signature.parse("QvK"));
+    }
+
+    @Test
+    @DisplayName("An entry's squares give back its index, with the white king on the left half")
+    public void indexRoundTrip() {
+        var signature = Signature.parse("KRvK");
+        int[] squares = new int[3];
+        for (int index = 0; index < signature.size(); index += 997) {
+            signature.squares(index, squares);
+            Assertions.assertTrue((squares[0] & 7) < 4);
+            Assertions.assertEquals(index, signature.index(squares, Signature.isBlackToMove(index)));
+        }
+        // Mirrored left to right, the same position
+        Assertions.assertEquals(signature.index(new int[]{4, 0, 60}, false),
+                signature.index(new int[]{3, 7, 59}, false));
+    }
+
+    @Test
+    @DisplayName("Probes find a position however it is colored or mirrored")
+    public void probe() throws IOException {
+        var signature = Signature.parse("KQvK");
+        // White: Kg6, Qa1; black: Kh8, black to move: mated in 2 plies after Kg8 Qa8
+        int index = signature.index(new int[]{46, 0, 63}, true);
+        byte[] entries = new byte[signature.size()];
+        entries[index] = (byte) Tablebase.loss(2);
+        write(signature, entries);
+        var tablebase = Tablebase.open(directory);
+
+        int result = tablebase.probe(ChessGame.fromFen("7k/8/6K1/8/8/8/8/Q7 b - - 0 1"));
+        Assertions.assertTrue(Tablebase.isLoss(result));
+        Assertions.assertEquals(2, Tablebase.plies(result));
+        // Mirrored left to right, and with the colors swapped
+        Assertions.assertEquals(result, tablebase.probe(ChessGame.fromFen("k7/8/1K6/8/8/8/8/7Q b - - 0 1")));
+        Assertions.assertEquals(result, tablebase.probe(ChessGame.fromFen("q7/8/8/8/8/6k1/8/7K w - - 0 1")));
+
+        Assertions.assertEquals(Tablebase.DRAW, tablebase.probe(ChessGame.fromFen("7k/8/6K1/8/8/8/8/8 w - - 0 1")));
+        Assertions.assertEquals(Tablebase.UNKNOWN,
+                tablebase.probe(ChessGame.fromFen("7k/8/6K1/8/8/8/8/R7 b - - 0 1")));
+        Assertions.assertEquals(Tablebase.UNKNOWN, tablebase.probe(new ChessGame()));
+        Assertions.assertEquals(Move.NONE, tablebase.bestMove(new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("Like pieces find the same entry however the board is mirrored or colored")
+    public void likePieces() throws IOException {
+        var signature = Signature.parse("KRRvK");
+        // Rooks on a3 and h3; the white king on e1, then mirrored to d1, then the colors swapped
+        var game = ChessGame.fromFen("4k3/8/8/8/8/R6R/8/4K3 w - - 0 1");
+        var mirrored = ChessGame.fromFen("3k4/8/8/8/8/R6R/8/3K4 w - - 0 1");
+        var swapped = ChessGame.fromFen("4k3/8/r6r/8/8/8/8/4K3 b - - 0 1");
+        int[] squares = new int[5];
+        int index = signature.index(game.getBoard(), game.getTeamTurn(), false, squares);
+        Assertions.assertEquals(index, signature.index(mirrored.getBoard(), mirrored.getTeamTurn(), false, squares));
+        Assertions.assertEquals(index, signature.index(swapped.getBoard(), swapped.getTeamTurn(), true, squares));
+        // The entry is the one that lists the rooks in order, which is the one tables store
+        signature.squares(index, squares);
+        Assertions.assertTrue(squares[1] < squares[2]);
+        Assertions.assertEquals(index, signature.index(squares, false));
+
+        byte[] entries = new byte[signature.size()];
+        entries[index] = (byte) Tablebase.win(3);
+        write(signature, entries);
+        var tablebase = Tablebase.open(directory);
+        Assertions.assertEquals(Tablebase.win(3), tablebase.probe(game));
+        Assertions.assertEquals(Tablebase.win(3), tablebase.probe(mirrored));
+        Assertions.assertEquals(Tablebase.win(3), tablebase.probe(swapped));
+        // Both rooks on the far side of the king
+        var corner = ChessGame.fromFen("2RRK3/8/8/8/7k/8/8/8 w - - 0 1");
+        var cornerMirrored = ChessGame.fromFen("3KRR2/8/8/8/k7/8/8/8 w - - 0 1");
+        Assertions.assertEquals(signature.index(cornerMirrored.getBoard(), ChessGame.TeamColor.WHITE, false, squares),
+                signature.index(corner.getBoard(), ChessGame.TeamColor.WHITE, false, squares));
+    }
+
+    @Test
+    @DisplayName("Tables whose size does not match their name are rejected")
+    public void invalidTable() throws IOException {
+        Files.write(directory.resolve("KQvK" + Tablebase.FILE_SUFFIX), new byte[Tablebase.HEADER_SIZE + 1]);
+        Assertions.assertThrows(IOException.class, () -> Tablebase.open(directory));
+    }
+
+    private void write(Signature signature, byte[] entries) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Tablebase.HEADER_SIZE + entries.length)
+                .putInt(Tablebase.MAGIC).putInt(signature.pieceCount()).putLong(entries.length).put(entries);
+        Files.write(directory.resolve(signature.fileName()), buffer.array());
+    }
+}
@@ -0,0 +1,211 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.tablebase.Tablebase;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class GameStateTests {
+
+    private GameState gameState;
+
+    @BeforeEach
+    public void setUp() {
+        gameState = new GameState(1);
+        gameState.addPlayer("white-token", "white");
+        gameState.assignPlayerTeamColor("white-token", ChessGame.TeamColor.WHITE);
+        gameState.addPlayer("black-token", "black");
+        gameState.assignPlayerTeamColor("black-token", ChessGame.TeamColor.BLACK);
+    }
+
+    @Test
+    @DisplayName("Checkmate ends the game")
+    public void foolsMate() {
+        Assertions.assertTrue(gameState.makeMove("white-token", move(2, 6, 3, 6)).isSuccessful());
+        Assertions.assertTrue(gameState.makeMove("black-token", move(7, 5, 5, 5)).isSuccessful());
+        Assertions.assertTrue(gameState.makeMove("white-token", move(2, 7, 4, 7)).isSuccessful());
+        var result = gameState.makeMove("black-token", move(8, 4, 4, 8));
+
+        Assertions.assertTrue(result.isSuccessful());
+        Assertions.assertEquals("Move successful. Checkmate!", result.getMoveDescription());
+        Assertions.assertTrue(gameState.isGameOver());
+        Assertions.assertEquals("black", gameState.getWinnerUsername());
+        Assertions.assertEquals(4, gameState.getMoveHistory().size());
+        Assertions.assertTrue(result.isGameEnded());
+    }
+
+    @Test
+    @DisplayName("A game ends once: resigning or ending it again afterwards is refused")
+    public void endsOnce() {
+        Assertions.assertFalse(gameState.makeMove("white-token", move(2, 6, 3, 6)).isGameEnded());
+        Assertions.assertTrue(gameState.markResigned("black-token"));
+        Assertions.assertFalse(gameState.markResigned("white-token"));
+        Assertions.assertEquals("white", gameState.getWinnerUsername());
+        Assertions.assertFalse(gameState.setGameOver(true));
+
+        var other = new GameState(9);
+        Assertions.assertTrue(other.setGameOver(true));
+        Assertions.assertFalse(other.setGameOver(true));
+    }
+
+    @Test
+    @DisplayName("Threefold repetition ends the game in a draw")
+    public void threefoldRepetition() {
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertTrue(gameState.makeMove("white-token", move(1, 7, 3, 6)).isSuccessful());
+            Assertions.assertTrue(gameState.makeMove("black-token", move(8, 7, 6, 6)).isSuccessful());
+            Assertions.assertTrue(gameState.makeMove("white-token", move(3, 6, 1, 7)).isSuccessful());
+            Assertions.assertFalse(gameState.isGameOver());
+            var result = gameState.makeMove("black-token", move(6, 6, 8, 7));
+            Assertions.assertTrue(result.isSuccessful());
+            if (i == 1) {
+                Assertions.assertEquals("Move successful. Draw by threefold repetition!", result.getMoveDescription());
+            }
+        }
+
+        Assertions.assertTrue(gameState.isGameOver());
+        Assertions.assertNull(gameState.getWinnerUsername());
+    }
+
+    @Test
+    @DisplayName("Illegal moves are rejected")
+    public void illegalMove() {
+        var result = gameState.makeMove("white-token", move(2, 5, 5, 5));
+
+        Assertions.assertFalse(result.isSuccessful());
+        Assertions.assertEquals("Move not valid for this piece", result.getErrorMessage());
+        Assertions.assertFalse(gameState.makeMove("white-token", move(7, 5, 5, 5)).isSuccessful(),
+                "White moved a black piece");
+    }
+
+    @Test
+    @DisplayName("Highlights for either side come from the cache")
+    public void highlights() {
+        // The cache is shared, so fill it here rather than rely on earlier tests
+        gameState.getLegalMoves(new ChessPosition(1, 7));
+        gameState.getLegalMoves(new ChessPosition(7, 5));
+        long hits = GameState.getLegalMoveCache().getHits();
+        var knight = gameState.getLegalMoves(new ChessPosition(1, 7));
+        var blackPawn = gameState.getLegalMoves(new ChessPosition(7, 5));
+
+        Assertions.assertEquals(List.of(new ChessPosition(3, 6), new ChessPosition(3, 8)), knight.getLegalMoves());
+        Assertions.assertEquals(2, blackPawn.getLegalMoves().size());
+        Assertions.assertTrue(GameState.getLegalMoveCache().getHits() >= hits + 2,
+                "Starting position moves were generated again");
+    }
+
+    @Test
+    @DisplayName("The engine's side only moves through makeEngineMove")
+    public void engineMoves() {
+        var engineGame = new GameState(2);
+        engineGame.addPlayer("white-token", "white");
+        engineGame.assignPlayerTeamColor("white-token", ChessGame.TeamColor.WHITE);
+        engineGame.setEngineColor(ChessGame.TeamColor.BLACK);
+        Assertions.assertFalse(engineGame.isEngineTurn());
+
+        Assertions.assertTrue(engineGame.makeMove("white-token", move(2, 5, 4, 5)).isSuccessful());
+        Assertions.assertTrue(engineGame.isEngineTurn());
+        long key = engineGame.copyGame().getPositionKey();
+
+        var stale = engineGame.makeEngineMove(move(7, 5, 5, 5), key ^ 1);
+        Assertions.assertFalse(stale.isSuccessful());
+        Assertions.assertTrue(engineGame.makeEngineMove(move(7, 5, 5, 5), key).isSuccessful());
+        Assertions.assertFalse(engineGame.isEngineTurn());
+        Assertions.assertEquals("BLACK", engineGame.toDTO().getEngineColor());
+    }
+
+    @Test
+    @DisplayName("A pawn promotes only to a queen, rook, bishop or knight")
+    public void promotion() {
+        // 1. h4 g5 2. hxg5 h6 3. gxh6 Nf6 4. h7 Ng8, and the pawn on h7 can take on g8
+        int[][] moves = {{2, 8, 4, 8}, {7, 7, 5, 7}, {4, 8, 5, 7}, {7, 8, 6, 8}, {5, 7, 6, 8}, {8, 7, 6, 6},
+                {6, 8, 7, 8}, {6, 6, 8, 7}};
+        for (int i = 0; i < moves.length; i++) {
+            int[] m = moves[i];
+            String token = i % 2 == 0 ? "white-token" : "black-token";
+            Assertions.assertTrue(gameState.makeMove(token, move(m[0], m[1], m[2], m[3])).isSuccessful());
+        }
+
+        var start = new ChessPosition(7, 8);
+        var end = new ChessPosition(8, 7);
+        Assertions.assertFalse(gameState.makeMove("white-token",
+                new ChessMove(start, end, ChessPiece.PieceType.KING)).isSuccessful());
+        Assertions.assertFalse(gameState.makeMove("white-token",
+                new ChessMove(start, end, ChessPiece.PieceType.PAWN)).isSuccessful());
+        Assertions.assertFalse(gameState.makeMove("white-token",
+                new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), ChessPiece.PieceType.QUEEN))
+                .isSuccessful(), "Only a pawn reaching the last row promotes");
+
+        // Naming no piece promotes to a queen
+        Assertions.assertTrue(gameState.makeMove("white-token", move(7, 8, 8, 7)).isSuccessful());
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                gameState.copyGame().getBoard().getPiece(end));
+        Assertions.assertEquals(new ChessMove(start, end, ChessPiece.PieceType.QUEEN),
+                gameState.getMoveHistory().get(8));
+    }
+
+    @Test
+    @DisplayName("The engine cannot take a player's side or join a game in progress")
+    public void engineColorRefused() {
+        var humanGame = new GameState(4);
+        humanGame.addPlayer("white-token", "white");
+        humanGame.assignPlayerTeamColor("white-token", ChessGame.TeamColor.WHITE);
+        humanGame.addPlayer("black-token", "black");
+        humanGame.assignPlayerTeamColor("black-token", ChessGame.TeamColor.BLACK);
+        Assertions.assertFalse(humanGame.setEngineColor(ChessGame.TeamColor.BLACK));
+        Assertions.assertNull(humanGame.getEngineColor());
+
+        var started = new GameState(5);
+        started.addPlayer("white-token", "white");
+        started.assignPlayerTeamColor("white-token", ChessGame.TeamColor.WHITE);
+        Assertions.assertTrue(started.makeMove("white-token", move(2, 5, 4, 5)).isSuccessful());
+        Assertions.assertFalse(started.setEngineColor(ChessGame.TeamColor.BLACK));
+
+        var engineGame = new GameState(6);
+        engineGame.addPlayer("white-token", "white");
+        engineGame.assignPlayerTeamColor("white-token", ChessGame.TeamColor.WHITE);
+        Assertions.assertTrue(engineGame.setEngineColor(ChessGame.TeamColor.BLACK));
+        Assertions.assertFalse(engineGame.setEngineColor(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, engineGame.getEngineColor());
+    }
+
+    @Test
+    @DisplayName("Resigning against the engine makes it the winner")
+    public void resignToEngine() {
+        var engineGame = new GameState(3);
+        engineGame.addPlayer("white-token", "white");
+        engineGame.assignPlayerTeamColor("white-token", ChessGame.TeamColor.WHITE);
+        engineGame.setEngineColor(ChessGame.TeamColor.BLACK);
+
+        Assertions.assertTrue(engineGame.markResigned("white-token"));
+        Assertions.assertEquals(GameState.ENGINE_NAME, engineGame.getWinnerUsername());
+        Assertions.assertFalse(engineGame.isEngineTurn());
+    }
+
+    @Test
+    @DisplayName("A result can only be claimed in positions the endgame tables hold")
+    public void claimResult() throws IOException {
+        Path directory = Files.createTempDirectory("tables");
+        try {
+            var tablebase = Tablebase.open(directory);
+            Assertions.assertFalse(gameState.claimResult("observer-token", tablebase).isSuccessful());
+            var claim = gameState.claimResult("white-token", tablebase);
+            Assertions.assertFalse(claim.isSuccessful());
+            Assertions.assertEquals("This position is not in the endgame tables", claim.getErrorMessage());
+            Assertions.assertFalse(gameState.isGameOver());
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,87 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One bit per table entry, packed 64 to a word. Bits are set atomically, so
+ * threads can mark entries of the same word at once.
+ */
+final class BitArray {
+    // words written to or read from a file at a time
+    private static final int CHUNK_WORDS = 1 << 16;
+
+    private final AtomicLongArray words;
+
+    BitArray(int size) {
+        this.words = new AtomicLongArray((int) ((size + 63L) >>> 6));
+    }
+
+    boolean get(int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    void set(int index) {
+        long bit = 1L << index;
+        int word = index >>> 6;
+        long current = words.get(word);
+        while ((current & bit) == 0 && !words.weakCompareAndSetVolatile(word, current, current | bit)) {
+            current = words.get(word);
+        }
+    }
+
+    /**
+     * @return the bits of entries {@code 64 * word} to {@code 64 * word + 63}
+     */
+    long word(int word) {
+        return words.get(word);
+    }
+
+    void clearWord(int word) {
+        words.set(word, 0);
+    }
+
+    int wordCount() {
+        return words.length();
+    }
+
+    /**
+     * @return the bytes the bits take on the heap
+     */
+    long bytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_WORDS * Long.BYTES);
+        for (int start = 0; start < words.length(); start += CHUNK_WORDS) {
+            buffer.clear();
+            for (int word = start; word < Math.min(start + CHUNK_WORDS, words.length()); word++) {
+                buffer.putLong(words.get(word));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    void read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_WORDS * Long.BYTES);
+        for (int start = 0; start < words.length(); start += CHUNK_WORDS) {
+            int count = Math.min(CHUNK_WORDS, words.length() - start);
+            buffer.clear().limit(count * Long.BYTES);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+            buffer.flip();
+            for (int word = start; word < start + count; word++) {
+                words.set(word, buffer.getLong());
+            }
+        }
+    }
+}
@@ -0,0 +1,738 @@
+package tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Move;
+import chess.MoveList;
+import chess.tablebase.Signature;
+import chess.tablebase.Tablebase;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Writes the endgame tables {@link Tablebase} reads, by retrograde analysis.
+ * <p>
+ * A first pass over every entry marks illegal positions, checkmates and
+ * stalemates, and works out what the moves that leave the table (captures
+ * and promotions) lead to in the smaller tables, which are generated first.
+ * After that, pass {@code n} finds the positions that mate, or are mated, in
+ * exactly {@code n} plies by working backwards from those decided in pass
+ * {@code n - 1}: it takes back every move that could have led to them,
+ * marks the positions reached in a bit array of candidates, and checks each
+ * candidate once by generating its moves. A candidate is a win when some move
+ * leads to a loss in {@code n - 1}, and a loss when every move leads to a win
+ * and the longest takes {@code n - 1}. Whatever is left once passes stop
+ * finding anything is a draw.
+ * <p>
+ * Besides the result bytes written to the file, the analysis keeps only bit
+ * arrays, one bit per entry: which entries are decided, which are this
+ * pass's candidates, and which have a double pawn push the opponent can take
+ * en passant (those are checked in every pass, since the entry reached leaves
+ * the en passant square out).
+ * <p>
+ * Passes run on a fork-join pool, each thread with a scratch game of its
+ * own, and each table reports positions per second and the peak heap used.
+ * After every pass the table so far is saved next to the final file, so a
+ * generation that is stopped picks up from its last pass when run again.
+ * Finished tables are skipped, so a run can be repeated until it completes.
+ * Nothing is downloaded; a plain JVM is all it needs.
+ * <pre>
+ * java -jar tablebase/target/tablebase.jar tables KQvK KRvK KPvK
+ * </pre>
+ */
+public final class TablebaseGenerator {
+
+    /**
+     * System property holding how many threads generate a table; defaults to
+     * every processor
+     */
+    public static final String THREADS_PROPERTY = "tablebase.threads";
+
+    static final String PARTIAL_SUFFIX = ".partial";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // magic, passes done, longest mate leaving the table, quiet passes in a row, entry count
+    private static final int PARTIAL_HEADER_SIZE = 24;
+    private static final String EMPTY_BOARD = "8/8/8/8/8/8/8/8 w - - 0 1";
+
+    private final Path directory;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param directory where tables are written, and where the smaller tables they need are read from
+     * @param pool      pool to run passes on
+     */
+    public TablebaseGenerator(Path directory, ForkJoinPool pool) {
+        this.directory = directory;
+        this.pool = pool;
+    }
+
+    /**
+     * Generates a table and, before it, every smaller table it depends on,
+     * skipping those already on disk
+     *
+     * @throws IOException if a table cannot be read or written
+     */
+    public void generate(Signature signature) throws IOException {
+        Set<Signature> order = new LinkedHashSet<>();
+        addWithDependencies(signature, order);
+        for (Signature table : order) {
+            if (Files.exists(directory.resolve(table.fileName()))) {
+                System.out.println(table + ": already generated");
+            } else {
+                generateTable(table);
+            }
+        }
+    }
+
+    private static void addWithDependencies(Signature signature, Set<Signature> order) {
+        if (order.contains(signature)) {
+            return;
+        }
+        for (Signature successor : signature.successors()) {
+            addWithDependencies(successor, order);
+        }
+        order.add(signature);
+    }
+
+    private void generateTable(Signature signature) throws IOException {
+        resetPeakHeap();
+        long start = System.nanoTime();
+        Path partial = directory.resolve(signature.fileName() + PARTIAL_SUFFIX);
+        // Reopened each time, so it holds every table generated so far
+        Tablebase smaller = Tablebase.open(directory);
+        Table table = new Table(signature, smaller);
+
+        int pass;
+        int quietPasses = 0;
+        if (Files.exists(partial)) {
+            int[] state = table.load(partial);
+            pass = state[0] + 1;
+            quietPasses = state[1];
+            System.out.printf("%s: resuming after pass %d%n", signature, pass - 1);
+        } else {
+            int mates = run(() -> IntStream.range(0, table.size()).parallel().map(table::initialize).sum());
+            System.out.printf("%s: %,d entries, %,d checkmates, %.1f s%n",
+                    signature, table.size(), mates, seconds(start));
+            table.save(partial, 0, 0);
+            pass = 1;
+        }
+
+        // A long mate in a smaller table can decide positions here after a few quiet passes
+        while (quietPasses < 2 || pass <= table.longestExternalMate() + 2) {
+            int currentPass = pass;
+            run(() -> {
+                IntStream.range(0, table.size()).parallel().forEach(index -> table.markCandidates(index, currentPass));
+                return null;
+            });
+            int resolved = run(() -> IntStream.range(0, table.candidateWords()).parallel()
+                    .map(word -> table.resolveCandidates(word, currentPass)).sum());
+            quietPasses = resolved == 0 ? quietPasses + 1 : 0;
+            if (resolved > 0) {
+                System.out.printf("%s: pass %d resolved %,d positions%n", signature, pass, resolved);
+            }
+            table.save(partial, pass, quietPasses);
+            pass++;
+        }
+
+        Path file = directory.resolve(signature.fileName());
+        table.write(file);
+        Files.deleteIfExists(partial);
+        double seconds = seconds(start);
+        System.out.printf("%s: done in %.1f s, %,.0f positions/s, %.1f MB of tables, peak heap %,d MB%n",
+                signature, seconds, table.size() / seconds, table.bytes() / 1048576.0, peakHeap() >> 20);
+    }
+
+    private <T> T run(Callable<T> pass) throws IOException {
+        try {
+            return pool.submit(pass).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Generation failed", e.getCause());
+        }
+    }
+
+    private static double seconds(long start) {
+        return Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP && memoryPool.isValid()) {
+                memoryPool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return the most heap used since {@link #resetPeakHeap()}, summed over the heap's pools
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP && memoryPool.isValid()) {
+                peak += memoryPool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * A table being solved: its results so far, the bit arrays the analysis
+     * works on, and the finished smaller tables its captures and promotions
+     * lead to
+     */
+    private static final class Table {
+        private final Signature signature;
+        private final Tablebase smaller;
+        // A result is only final once its entry is marked decided; before, it may hold a bound from the first pass
+        private final byte[] values;
+        private final BitArray decided;
+        private final BitArray candidates;
+        private final BitArray enPassant;
+        private final AtomicInteger longestExternalMate = new AtomicInteger();
+        private final ThreadLocal<Worker> workers;
+
+        Table(Signature signature, Tablebase smaller) {
+            this.signature = signature;
+            this.smaller = smaller;
+            this.values = new byte[signature.size()];
+            this.decided = new BitArray(signature.size());
+            this.candidates = new BitArray(signature.size());
+            this.enPassant = new BitArray(signature.size());
+            this.workers = ThreadLocal.withInitial(() -> new Worker(signature));
+        }
+
+        int size() {
+            return values.length;
+        }
+
+        int candidateWords() {
+            return candidates.wordCount();
+        }
+
+        long bytes() {
+            return values.length + decided.bytes() + candidates.bytes() + enPassant.bytes();
+        }
+
+        int longestExternalMate() {
+            return longestExternalMate.get();
+        }
+
+        private void decide(int index, int result) {
+            values[index] = (byte) result;
+            decided.set(index); // after the value, so a thread that sees the bit sees the value
+        }
+
+        /**
+         * The first pass: decides illegal positions, checkmates, stalemates
+         * and positions whose every move leaves the table. For the rest it
+         * keeps what the moves leaving the table allow: a win no longer than
+         * the quickest mate among them, or a loss no sooner than the slowest.
+         *
+         * @return 1 if the entry is a checkmate, else 0
+         */
+        int initialize(int index) {
+            Worker worker = workers.get();
+            ChessGame game = worker.game;
+            // A position is stored once, with like pieces in ascending order (see Signature)
+            if (!worker.setUp(index) || worker.index(game.getTeamTurn()) != index) {
+                decide(index, Tablebase.ILLEGAL);
+                return 0;
+            }
+            MoveList moves = worker.moves[0];
+            game.legalMoves(game.getTeamTurn(), moves);
+            if (moves.isEmpty()) {
+                boolean mated = game.isInCheck(game.getTeamTurn());
+                decide(index, mated ? Tablebase.loss(0) : Tablebase.DRAW);
+                return mated ? 1 : 0;
+            }
+
+            int quickestWin = Integer.MAX_VALUE;
+            int slowestLoss = 0;
+            boolean canDraw = false;
+            boolean staysInTable = false;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (!leavesTable(move)) {
+                    staysInTable = true;
+                    if (Move.hasFlag(move, Move.FLAG_DOUBLE_PUSH)) {
+                        game.makeLegalMove(move);
+                        if (game.getBoard().hasEnPassantSquare()) {
+                            enPassant.set(index);
+                        }
+                        game.unmakeMove();
+                    }
+                    continue;
+                }
+                game.makeLegalMove(move);
+                int reply = probeSmaller(game);
+                game.unmakeMove();
+                if (Tablebase.isLoss(reply)) {
+                    quickestWin = Math.min(quickestWin, Tablebase.plies(reply) + 1);
+                } else if (Tablebase.isWin(reply)) {
+                    slowestLoss = Math.max(slowestLoss, Tablebase.plies(reply) + 1);
+                } else {
+                    canDraw = true;
+                }
+                if (Tablebase.isWin(reply) || Tablebase.isLoss(reply)) {
+                    longestExternalMate.accumulateAndGet(Tablebase.plies(reply), Math::max);
+                }
+            }
+
+            int bound = quickestWin != Integer.MAX_VALUE ? Tablebase.win(quickestWin)
+                    : canDraw || slowestLoss == 0 ? Tablebase.DRAW : Tablebase.loss(slowestLoss);
+            if (staysInTable) {
+                values[index] = (byte) bound;
+            } else {
+                decide(index, bound);
+            }
+            return 0;
+        }
+
+        /**
+         * First half of pass {@code pass}: takes back the moves into the
+         * positions decided last pass, and marks the undecided positions they
+         * came from as candidates, along with those the first pass or en
+         * passant says to check now
+         */
+        void markCandidates(int index, int pass) {
+            boolean findingWins = (pass & 1) != 0;
+            if (!decided.get(index)) {
+                int bound = findingWins ? Tablebase.win(pass) : Tablebase.loss(pass);
+                if ((values[index] & 0xFF) == bound || enPassant.get(index)) {
+                    candidates.set(index);
+                }
+                return;
+            }
+            int previous = findingWins ? Tablebase.loss(pass - 1) : Tablebase.win(pass - 1);
+            if ((values[index] & 0xFF) != previous) {
+                return;
+            }
+            Worker worker = workers.get();
+            worker.setUp(index);
+            worker.forEachPredecessor(predecessor -> {
+                if (!decided.get(predecessor)) {
+                    candidates.set(predecessor);
+                }
+            });
+        }
+
+        /**
+         * Second half of pass {@code pass}: checks the candidates in one word
+         * of the bit array by generating their moves, and clears the word
+         *
+         * @return the number of positions decided
+         */
+        int resolveCandidates(int word, int pass) {
+            long bits = candidates.word(word);
+            if (bits == 0) {
+                return 0;
+            }
+            candidates.clearWord(word);
+            Worker worker = workers.get();
+            int resolved = 0;
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (decided.get(index) || !worker.setUp(index)) {
+                    continue;
+                }
+                int result = (pass & 1) != 0 ? winIn(worker, pass) : lossIn(worker, pass);
+                if (result != Tablebase.DRAW) {
+                    decide(index, result);
+                    resolved++;
+                }
+            }
+            return resolved;
+        }
+
+        // Odd passes only find wins and even passes only losses, so a pass never reads what it writes
+        private int winIn(Worker worker, int pass) {
+            ChessGame game = worker.game;
+            MoveList moves = worker.moves[0];
+            game.legalMoves(game.getTeamTurn(), moves);
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                game.makeLegalMove(move);
+                int reply = resultAfter(worker, move, 1);
+                game.unmakeMove();
+                if (reply == Tablebase.loss(pass - 1)) {
+                    return Tablebase.win(pass);
+                }
+            }
+            return Tablebase.DRAW;
+        }
+
+        private int lossIn(Worker worker, int pass) {
+            ChessGame game = worker.game;
+            MoveList moves = worker.moves[0];
+            game.legalMoves(game.getTeamTurn(), moves);
+            int longest = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                game.makeLegalMove(move);
+                int reply = resultAfter(worker, move, 1);
+                game.unmakeMove();
+                if (!Tablebase.isWin(reply)) {
+                    return Tablebase.DRAW;
+                }
+                longest = Math.max(longest, reply);
+            }
+            return longest == Tablebase.win(pass - 1) ? Tablebase.loss(pass) : Tablebase.DRAW;
+        }
+
+        /**
+         * Looks up the position a move has just reached, for its side to move
+         *
+         * @param depth plies below the entry being solved, which picks the worker's move list
+         */
+        private int resultAfter(Worker worker, int move, int depth) {
+            ChessGame game = worker.game;
+            if (leavesTable(move)) {
+                return probeSmaller(game);
+            }
+            if (game.getBoard().hasEnPassantSquare()) {
+                // The entry leaves en passant out, so work this position out from its moves
+                return resultFromMoves(worker, depth);
+            }
+            int index = worker.index(game.getTeamTurn());
+            if (!decided.get(index)) {
+                return Tablebase.DRAW;
+            }
+            int result = values[index] & 0xFF;
+            if (result == Tablebase.ILLEGAL) {
+                // A move always reaches a legal position, which must have an entry of its own
+                throw new IllegalStateException("Move " + Move.toString(move) + " reached entry " + index
+                        + " of " + signature.name() + ", which is not stored");
+            }
+            return result;
+        }
+
+        private int resultFromMoves(Worker worker, int depth) {
+            ChessGame game = worker.game;
+            MoveList moves = worker.moves[depth];
+            game.legalMoves(game.getTeamTurn(), moves);
+            if (moves.isEmpty()) {
+                return game.isInCheck(game.getTeamTurn()) ? Tablebase.loss(0) : Tablebase.DRAW;
+            }
+            int shortestWin = Integer.MAX_VALUE;
+            int longestLoss = 0;
+            boolean allWins = true;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                game.makeLegalMove(move);
+                int reply = resultAfter(worker, move, depth + 1);
+                game.unmakeMove();
+                if (Tablebase.isLoss(reply)) {
+                    shortestWin = Math.min(shortestWin, Tablebase.plies(reply) + 1);
+                } else if (Tablebase.isWin(reply)) {
+                    longestLoss = Math.max(longestLoss, Tablebase.plies(reply) + 1);
+                } else {
+                    allWins = false;
+                }
+            }
+            if (shortestWin != Integer.MAX_VALUE) {
+                return Tablebase.win(shortestWin);
+            }
+            return allWins ? Tablebase.loss(longestLoss) : Tablebase.DRAW;
+        }
+
+        private int probeSmaller(ChessGame game) {
+            int result = smaller.probe(game);
+            if (result == Tablebase.UNKNOWN) {
+                throw new IllegalStateException("Missing a table for " + game.toFen());
+            }
+            return result;
+        }
+
+        private static boolean leavesTable(int move) {
+            return Move.hasFlag(move, Move.FLAG_CAPTURE) || Move.promotion(move) != null;
+        }
+
+        /**
+         * @return the passes done and the quiet passes in a row when it was saved
+         */
+        int[] load(Path partial) throws IOException {
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(PARTIAL_HEADER_SIZE);
+                readFully(channel, header);
+                header.flip();
+                long expectedSize = PARTIAL_HEADER_SIZE + (long) size() + decided.bytes() + enPassant.bytes();
+                if (header.getInt() != Tablebase.MAGIC || channel.size() != expectedSize) {
+                    throw new IOException("Not a partial table for " + signature + ": " + partial);
+                }
+                int passes = header.getInt();
+                longestExternalMate.set(header.getInt());
+                int quietPasses = header.getInt();
+                if (header.getLong() != size()) {
+                    throw new IOException("Not a partial table for " + signature + ": " + partial);
+                }
+                readFully(channel, ByteBuffer.wrap(values));
+                decided.read(channel);
+                enPassant.read(channel);
+                return new int[]{passes, quietPasses};
+            }
+        }
+
+        void save(Path partial, int passes, int quietPasses) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(PARTIAL_HEADER_SIZE)
+                    .putInt(Tablebase.MAGIC).putInt(passes).putInt(longestExternalMate.get())
+                    .putInt(quietPasses).putLong(size());
+            writeAtomically(partial, header.flip(), true);
+        }
+
+        void write(Path file) throws IOException {
+            // Entries never decided are draws: neither side can force mate
+            for (int index = 0; index < values.length; index++) {
+                if (!decided.get(index)) {
+                    values[index] = (byte) Tablebase.DRAW;
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE)
+                    .putInt(Tablebase.MAGIC).putInt(signature.pieceCount()).putLong(size());
+            writeAtomically(file, header.flip(), false);
+        }
+
+        /**
+         * Writes the header and results, and for a checkpoint the bit arrays,
+         * to a temporary file and moves it into place, so a stopped run never
+         * leaves a torn file behind
+         */
+        private void writeAtomically(Path file, ByteBuffer header, boolean withBits) throws IOException {
+            Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(values));
+                if (withBits) {
+                    decided.write(channel);
+                    enPassant.write(channel);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * A thread's scratch game, set up in turn with each entry it works on
+     */
+    private static final class Worker {
+        private static final int[][] KING_STEPS = {{1, -1}, {1, 0}, {1, 1}, {0, -1}, {0, 1}, {-1, -1}, {-1, 0}, {-1, 1}};
+        private static final int[][] KNIGHT_STEPS = {{2, -1}, {2, 1}, {1, -2}, {1, 2}, {-1, -2}, {-1, 2}, {-2, -1}, {-2, 1}};
+        private static final int[][] ROOK_STEPS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        private static final int[][] BISHOP_STEPS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        private static final int[][] QUEEN_STEPS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+        private final Signature signature;
+        private final ChessGame game = ChessGame.fromFen(EMPTY_BOARD);
+        private final ChessPiece[] pieces;
+        private final int[] squares;
+        private final int[] scratch;
+        private final int[] placed;
+        // one list per ply, for working out en passant positions from their moves
+        private final MoveList[] moves = new MoveList[Tablebase.MAX_PIECES + 2];
+
+        Worker(Signature signature) {
+            this.signature = signature;
+            this.pieces = new ChessPiece[signature.pieceCount()];
+            for (int i = 0; i < pieces.length; i++) {
+                pieces[i] = new ChessPiece(signature.color(i), signature.type(i));
+            }
+            this.squares = new int[Tablebase.MAX_PIECES];
+            this.scratch = new int[Tablebase.MAX_PIECES];
+            this.placed = new int[signature.pieceCount()];
+            Arrays.fill(placed, -1);
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = new MoveList();
+            }
+        }
+
+        /**
+         * Puts the entry's position on the board
+         *
+         * @return false if it is not a legal position
+         */
+        boolean setUp(int index) {
+            ChessBoard board = game.getBoard();
+            for (int square : placed) {
+                if (square >= 0) {
+                    board.addPiece(position(square), null);
+                }
+            }
+            Arrays.fill(placed, -1);
+
+            signature.squares(index, squares);
+            long occupied = 0;
+            for (int i = 0; i < pieces.length; i++) {
+                int square = squares[i];
+                long bit = 1L << square;
+                boolean lastRow = square < 8 || square >= 56;
+                if ((occupied & bit) != 0 || (lastRow && signature.type(i) == ChessPiece.PieceType.PAWN)) {
+                    return false;
+                }
+                occupied |= bit;
+                board.addPiece(position(square), pieces[i]);
+                placed[i] = square;
+            }
+            ChessGame.TeamColor toMove = Signature.isBlackToMove(index)
+                    ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            game.setTeamTurn(toMove);
+            // The side that just moved cannot have left its king in check
+            return !game.isInCheck(game.getOpponentColor(toMove));
+        }
+
+        /**
+         * @return the entry of the position on the board with {@code toMove} to move
+         */
+        int index(ChessGame.TeamColor toMove) {
+            return signature.index(game.getBoard(), toMove, false, scratch);
+        }
+
+        /**
+         * Takes back each move that could have led to the position set up,
+         * other than captures and promotions, which come from other tables.
+         * The positions reached may be illegal; callers check them when they
+         * set them up.
+         */
+        void forEachPredecessor(IntConsumer action) {
+            ChessGame.TeamColor mover = game.getOpponentColor(game.getTeamTurn());
+            long occupied = 0;
+            for (int i = 0; i < pieces.length; i++) {
+                occupied |= 1L << squares[i];
+            }
+            for (int i = 0; i < pieces.length; i++) {
+                if (signature.color(i) != mover) {
+                    continue;
+                }
+                int square = squares[i];
+                switch (signature.type(i)) {
+                    case KING -> steps(i, square, KING_STEPS, false, occupied, mover, action);
+                    case KNIGHT -> steps(i, square, KNIGHT_STEPS, false, occupied, mover, action);
+                    case ROOK -> steps(i, square, ROOK_STEPS, true, occupied, mover, action);
+                    case BISHOP -> steps(i, square, BISHOP_STEPS, true, occupied, mover, action);
+                    case QUEEN -> steps(i, square, QUEEN_STEPS, true, occupied, mover, action);
+                    case PAWN -> pawnSteps(i, square, occupied, mover, action);
+                }
+            }
+        }
+
+        private void steps(int piece, int square, int[][] steps, boolean slides, long occupied,
+                           ChessGame.TeamColor mover, IntConsumer action) {
+            for (int[] step : steps) {
+                int row = square >>> 3;
+                int column = square & 7;
+                while (true) {
+                    row += step[0];
+                    column += step[1];
+                    if (row < 0 || row > 7 || column < 0 || column > 7 || (occupied & (1L << (row * 8 + column))) != 0) {
+                        break;
+                    }
+                    action.accept(predecessor(piece, square, row * 8 + column, mover));
+                    if (!slides) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void pawnSteps(int piece, int square, long occupied, ChessGame.TeamColor mover, IntConsumer action) {
+            boolean white = mover == ChessGame.TeamColor.WHITE;
+            int forward = white ? 8 : -8;
+            int row = square >>> 3;
+            int single = square - forward;
+            // A pawn on its second row cannot have come from its first
+            boolean fromSecondRow = white ? row >= 2 : row <= 5;
+            if (fromSecondRow && (occupied & (1L << single)) == 0) {
+                action.accept(predecessor(piece, square, single, mover));
+                int twoBack = single - forward;
+                if (row == (white ? 3 : 4) && (occupied & (1L << twoBack)) == 0) {
+                    action.accept(predecessor(piece, square, twoBack, mover));
+                }
+            }
+        }
+
+        /**
+         * @return the entry with piece {@code piece} moved back from {@code square}
+         * to {@code from}, and {@code mover} to move
+         */
+        private int predecessor(int piece, int square, int from, ChessGame.TeamColor mover) {
+            ChessBoard board = game.getBoard();
+            board.addPiece(position(square), null);
+            board.addPiece(position(from), pieces[piece]);
+            int index = index(mover);
+            board.addPiece(position(from), null);
+            board.addPiece(position(square), pieces[piece]);
+            return index;
+        }
+
+        private static ChessPosition position(int square) {
+            return ChessPosition.of((square >>> 3) + 1, (square & 7) + 1);
+        }
+    }
+
+    /**
+     * Arguments: the directory to write tables to, then the signatures to
+     * generate, such as {@code KQvK KRPvKR}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TablebaseGenerator <directory> <signature>...");
+            System.exit(2);
+        }
+        List<Signature> signatures = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            signatures.add(Signature.parse(args[i]));
+        }
+        Path directory = Path.of(args[0]);
+        Files.createDirectories(directory);
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            TablebaseGenerator generator = new TablebaseGenerator(directory, pool);
+            for (Signature signature : signatures) {
+                generator.generate(signature);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
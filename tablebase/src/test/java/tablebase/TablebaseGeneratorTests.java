@@ -0,0 +1,171 @@
+package tablebase;
+
+import chess.ChessGame;
+import chess.Move;
+import chess.MoveList;
+import chess.tablebase.Signature;
+import chess.tablebase.Tablebase;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class TablebaseGeneratorTests {
+
+    private Path directory;
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tables");
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    @DisplayName("The longest mates are 10 moves with a queen and 16 with a rook")
+    public void longestMates() throws IOException {
+        var generator = new TablebaseGenerator(directory, pool);
+        generator.generate(Signature.parse("KQvK"));
+        generator.generate(Signature.parse("KRvK"));
+
+        Assertions.assertEquals(20, longestMate(Signature.parse("KQvK")));
+        Assertions.assertEquals(32, longestMate(Signature.parse("KRvK")));
+        Assertions.assertFalse(Files.exists(directory.resolve("KRvK.tb" + TablebaseGenerator.PARTIAL_SUFFIX)));
+    }
+
+    @Test
+    @DisplayName("Pawn endings are generated with the tables their promotions lead to")
+    public void pawnEnding() throws IOException {
+        new TablebaseGenerator(directory, pool).generate(Signature.parse("KPvK"));
+        var tablebase = Tablebase.open(directory);
+        Assertions.assertEquals(5, tablebase.getTableCount());
+
+        // With the king in front of its pawn on the sixth row white wins whoever moves
+        var winning = ChessGame.fromFen("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1");
+        Assertions.assertTrue(Tablebase.isLoss(tablebase.probe(winning)));
+        // With the defending king in front, and the pawn not yet past it, it is a draw
+        var drawn = ChessGame.fromFen("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1");
+        Assertions.assertEquals(Tablebase.DRAW, tablebase.probe(drawn));
+        // Rook-pawn promotion: the tables prefer the quickest mate
+        var promotion = ChessGame.fromFen("8/P7/8/8/8/8/7k/K7 w - - 0 1");
+        Assertions.assertEquals("a7a8q", Move.toString(tablebase.bestMove(promotion)));
+    }
+
+    @Test
+    @DisplayName("With two like pieces every legal position is stored, and its result agrees with its moves")
+    public void likePieceDistances() throws IOException {
+        var signature = Signature.parse("KRRvK");
+        new TablebaseGenerator(directory, pool).generate(signature);
+        var tablebase = Tablebase.open(directory);
+
+        // Random positions, so the white king is as often on files e to h, where the board is mirrored
+        var random = new Random(22);
+        int[] squares = new int[signature.pieceCount()];
+        var moves = new MoveList();
+        int checked = 0;
+        while (checked < 5_000) {
+            int index = random.nextInt(signature.size());
+            signature.squares(index, squares);
+            squares[0] ^= random.nextBoolean() ? 7 : 0;
+            ChessGame game = position(signature, squares, Signature.isBlackToMove(index));
+            if (game == null || game.isInCheck(game.getOpponentColor(game.getTeamTurn()))) {
+                continue; // not a legal position
+            }
+            checked++;
+            int result = tablebase.probe(game);
+            Assertions.assertNotEquals(Tablebase.ILLEGAL, result, game.toFen());
+            Assertions.assertEquals(expected(tablebase, game, moves), result, game.toFen());
+        }
+    }
+
+    /**
+     * Works a position's result out from the results of its moves
+     */
+    private static int expected(Tablebase tablebase, ChessGame game, MoveList moves) {
+        game.legalMoves(game.getTeamTurn(), moves);
+        if (moves.isEmpty()) {
+            return game.isInCheck(game.getTeamTurn()) ? Tablebase.loss(0) : Tablebase.DRAW;
+        }
+        int quickestWin = Integer.MAX_VALUE;
+        int slowestLoss = 0;
+        boolean allLose = true;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeLegalMove(moves.get(i));
+            int reply = tablebase.probe(game);
+            game.unmakeMove();
+            if (Tablebase.isLoss(reply)) {
+                quickestWin = Math.min(quickestWin, Tablebase.plies(reply) + 1);
+            } else if (Tablebase.isWin(reply)) {
+                slowestLoss = Math.max(slowestLoss, Tablebase.plies(reply) + 1);
+            } else {
+                allLose = false;
+            }
+        }
+        if (quickestWin != Integer.MAX_VALUE) {
+            return Tablebase.win(quickestWin);
+        }
+        return allLose ? Tablebase.loss(slowestLoss) : Tablebase.DRAW;
+    }
+
+    /**
+     * @return the position with the signature's pieces on {@code squares},
+     * or null if two share a square
+     */
+    private static ChessGame position(Signature signature, int[] squares, boolean blackToMove) {
+        char[][] rows = new char[8][8];
+        for (char[] row : rows) {
+            Arrays.fill(row, '1');
+        }
+        for (int i = 0; i < signature.pieceCount(); i++) {
+            char[] row = rows[7 - (squares[i] >>> 3)];
+            if (row[squares[i] & 7] != '1') {
+                return null;
+            }
+            char letter = switch (signature.type(i)) {
+                case KING -> 'k';
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                case KNIGHT -> 'n';
+                case PAWN -> 'p';
+            };
+            row[squares[i] & 7] = signature.color(i) == ChessGame.TeamColor.WHITE
+                    ? Character.toUpperCase(letter) : letter;
+        }
+        StringBuilder fen = new StringBuilder();
+        for (char[] row : rows) {
+            fen.append(fen.length() == 0 ? "" : "/").append(row);
+        }
+        return ChessGame.fromFen(fen + (blackToMove ? " b" : " w") + " - - 0 1");
+    }
+
+    /**
+     * @return the most plies any position in the table takes to be mated
+     */
+    private int longestMate(Signature signature) throws IOException {
+        byte[] table = Files.readAllBytes(directory.resolve(signature.fileName()));
+        int longest = 0;
+        for (int i = Tablebase.HEADER_SIZE; i < table.length; i++) {
+            int result = table[i] & 0xFF;
+            if (Tablebase.isLoss(result)) {
+                longest = Math.max(longest, Tablebase.plies(result));
+            }
+        }
+        return longest;
+    }
+}